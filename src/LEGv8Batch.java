@@ -0,0 +1,157 @@
+import core.*;
+import instruction.InstructionConfigLoader;
+import util.ColoredLog;
+import util.JsonUtils;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Headless batch runner for the LEGv8 CPU Simulator: runs every job of a manifest on a fixed thread pool
+ * and streams one result per job to a JSON-lines or CSV file as jobs finish.
+ * <p>
+ * Usage: {@code LEGv8Batch <manifest> <results.jsonl|results.csv> [--threads=N] [--max-instructions=N]
+ * [--timeout-ms=N] [--config=<instructions.txt>]}
+ * <p>
+ * Each manifest line is {@code program, fixture, expected[, max-instructions]}. Paths are relative to the
+ * manifest; an empty or {@code -} fixture/expected means none. Fixture and expected files use the
+ * {@link StateFixture} format. Blank lines and lines starting with {@code #} are ignored.
+ * The exit code is 0 if every job passed, 1 otherwise.
+ */
+public class LEGv8Batch {
+    private static final String DEFAULT_CONFIG = "D:/LEGv8_Simulator/src/instruction/instructions.txt";
+
+    public static void main(String[] args) throws Exception {
+        List<String> positional = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String config = DEFAULT_CONFIG;
+        RunOptions.Builder defaults = RunOptions.builder();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--max-instructions=")) {
+                defaults.setMaxInstructions(Long.parseLong(arg.substring("--max-instructions=".length())));
+            } else if (arg.startsWith("--timeout-ms=")) {
+                defaults.setTimeout(Duration.ofMillis(Long.parseLong(arg.substring("--timeout-ms=".length()))));
+            } else if (arg.startsWith("--config=")) {
+                config = arg.substring("--config=".length());
+            } else {
+                positional.add(arg);
+            }
+        }
+        if (positional.size() != 2) {
+            System.err.println("Usage: LEGv8Batch <manifest> <results.jsonl|results.csv> [--threads=N] "
+                    + "[--max-instructions=N] [--timeout-ms=N] [--config=<instructions.txt>]");
+            System.exit(2);
+        }
+
+        InstructionConfigLoader configLoader = new InstructionConfigLoader();
+        if (!configLoader.loadConfig(config)) {
+            System.err.println(ColoredLog.ERROR + "Failed to load " + config);
+            System.exit(2);
+        }
+        Path manifest = Paths.get(positional.get(0));
+        Path output = Paths.get(positional.get(1));
+        List<BatchRunner.Job> jobs = readManifest(manifest, defaults.build());
+        boolean csv = output.getFileName().toString().toLowerCase().endsWith(".csv");
+
+        Map<BatchRunner.Verdict, Integer> totals = new EnumMap<>(BatchRunner.Verdict.class);
+        long start = System.nanoTime();
+        try (BatchRunner runner = new BatchRunner(configLoader, threads);
+             BufferedWriter out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            if (csv) {
+                out.write("id,program,fixture,verdict,status,instructions,elapsed_ms,message\n");
+            }
+            runner.run(jobs, result -> {
+                totals.merge(result.getVerdict(), 1, Integer::sum);
+                try {
+                    writeResult(out, result, csv);
+                    out.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        System.out.printf("%s%d job(s) in %d ms on %d thread(s): %d passed, %d failed, %d error(s). Results in %s%n",
+                ColoredLog.INFO, jobs.size(), elapsedMs, threads,
+                totals.getOrDefault(BatchRunner.Verdict.PASS, 0),
+                totals.getOrDefault(BatchRunner.Verdict.FAIL, 0),
+                totals.getOrDefault(BatchRunner.Verdict.ERROR, 0), output);
+        System.exit(totals.getOrDefault(BatchRunner.Verdict.PASS, 0) == jobs.size() ? 0 : 1);
+    }
+
+    private static List<BatchRunner.Job> readManifest(Path manifest, RunOptions defaultOptions) throws IOException {
+        Path base = manifest.toAbsolutePath().getParent();
+        List<BatchRunner.Job> jobs = new ArrayList<>();
+        List<String> lines = Files.readAllLines(manifest, StandardCharsets.UTF_8);
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] fields = line.split("\\s*,\\s*", -1);
+            if (fields.length < 1 || fields.length > 4 || fields[0].isEmpty()) {
+                throw new IllegalArgumentException(manifest + ":" + (i + 1) + ": expected program, fixture, expected[, max-instructions]");
+            }
+            RunOptions options = defaultOptions;
+            if (fields.length == 4 && !fields[3].isEmpty()) {
+                options = defaultOptions.toBuilder().setMaxInstructions(Long.parseLong(fields[3])).build();
+            }
+            jobs.add(new BatchRunner.Job(manifest.getFileName() + ":" + (i + 1),
+                    base.resolve(fields[0]),
+                    optionalPath(base, fields, 1),
+                    optionalPath(base, fields, 2),
+                    options));
+        }
+        return jobs;
+    }
+
+    private static Path optionalPath(Path base, String[] fields, int index) {
+        if (index >= fields.length || fields[index].isEmpty() || fields[index].equals("-")) {
+            return null;
+        }
+        return base.resolve(fields[index]);
+    }
+
+    private static void writeResult(Writer out, BatchRunner.Result result, boolean csv) throws IOException {
+        BatchRunner.Job job = result.getJob();
+        String status = result.getOutcome() != null ? result.getOutcome().getStatus().toString() : "";
+        String message = result.getMismatches().isEmpty()
+                ? result.getMessage()
+                : result.getMessage() + ": " + String.join("; ", result.getMismatches());
+        if (csv) {
+            out.write(String.join(",", csvField(job.getId()), csvField(job.getProgram().toString()),
+                    csvField(job.getFixture() != null ? job.getFixture().toString() : ""),
+                    result.getVerdict().toString(), status,
+                    Long.toString(result.getInstructionCount()),
+                    Long.toString(result.getElapsed().toMillis()), csvField(message)));
+        } else {
+            out.write(String.format("{\"id\":%s,\"program\":%s,\"fixture\":%s,\"verdict\":\"%s\",\"status\":%s,"
+                            + "\"instructions\":%d,\"elapsed_ms\":%d,\"message\":%s}",
+                    JsonUtils.quote(job.getId()), JsonUtils.quote(job.getProgram().toString()),
+                    job.getFixture() != null ? JsonUtils.quote(job.getFixture().toString()) : "null",
+                    result.getVerdict(), status.isEmpty() ? "null" : JsonUtils.quote(status),
+                    result.getInstructionCount(), result.getElapsed().toMillis(), JsonUtils.quote(message)));
+        }
+        out.write('\n');
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
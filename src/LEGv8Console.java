@@ -1,5 +1,12 @@
 import core.*;
 import instruction.InstructionConfigLoader;
+import memory.HexDumpWriter;
+import memory.Memory;
+import java.io.BufferedWriter;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -17,27 +24,81 @@ public class LEGv8Console {
     public void runConsole() {
         Scanner scanner = new Scanner(System.in);
         System.out.println("LEGv8 CPU Simulator Console");
-        System.out.println("Commands: load, run, step, print, exit");
+        System.out.println("Commands: load, loadbin <file>, loadobj <file>, saveobj <file>, run, fast [max-instructions] [timeout-ms], step, print, dump <address> <length>, profile [on|off], exit");
         System.out.println("Supported instructions: ADD, SUB, MOVZ, AND, ORR, LDUR, STUR, ADDI, SUBI, B");
 
         while (true) {
             System.out.print("> ");
-            String input = scanner.nextLine().trim().toLowerCase();
+            String line = scanner.nextLine().trim();
+            String[] tokens = line.split("\\s+", 2);
+            String input = tokens[0].toLowerCase();
+            String argument = tokens.length > 1 ? tokens[1].trim() : "";
 
             try {
                 switch (input) {
                     case "load":
                         loadProgramFromConsole(scanner);
                         break;
+                    case "loadbin":
+                        if (argument.isEmpty()) {
+                            System.out.println("Usage: loadbin <file>");
+                            break;
+                        }
+                        simulator.loadProgramImage(Paths.get(argument));
+                        break;
+                    case "loadobj":
+                        if (argument.isEmpty()) {
+                            System.out.println("Usage: loadobj <file>");
+                            break;
+                        }
+                        simulator.loadObjectFile(Paths.get(argument));
+                        break;
+                    case "saveobj":
+                        if (argument.isEmpty()) {
+                            System.out.println("Usage: saveobj <file>");
+                            break;
+                        }
+                        simulator.saveObjectFile(Paths.get(argument));
+                        System.out.println("Saved " + simulator.getInstructionCount() + " instruction(s) to " + argument);
+                        break;
                     case "run":
                         simulator.executeProgram();
                         break;
+                    case "fast":
+                        RunOutcome outcome = simulator.run(parseRunOptions(argument));
+                        System.out.println(outcome.getStatus() + ": " + outcome.getMessage()
+                                + " - executed " + outcome.getInstructionCount() + " instruction(s) in "
+                                + outcome.getElapsed().toMillis() + " ms.");
+                        simulator.printState();
+                        break;
                     case "step":
                         simulator.step();
                         break;
                     case "print":
                         simulator.printState();
                         break;
+                    case "dump":
+                        String[] range = argument.split("\\s+");
+                        if (range.length != 2 || range[0].isEmpty()) {
+                            System.out.println("Usage: dump <address> <length>");
+                            break;
+                        }
+                        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+                        new HexDumpWriter(out).dump(simulator.getMemory(), Long.decode(range[0]), Long.decode(range[1]));
+                        out.flush();
+                        break;
+                    case "profile":
+                        if (argument.equalsIgnoreCase("on")) {
+                            simulator.setProfiler(new CallGraphProfiler());
+                            System.out.println("Profiling the fast path from PC " + simulator.getPc() + ".");
+                        } else if (argument.equalsIgnoreCase("off")) {
+                            simulator.setProfiler(null);
+                        } else if (simulator.getProfiler() == null) {
+                            System.out.println("Profiling is off. Usage: profile [on|off]");
+                        } else {
+                            System.out.print(simulator.getProfiler().formatReport());
+                        }
+                        break;
                     case "exit":
                         System.out.println("Exiting...");
                         scanner.close();
@@ -51,6 +112,22 @@ public class LEGv8Console {
         }
     }
 
+    /**
+     * Parses the optional arguments of the fast command: an instruction budget and a timeout in milliseconds.
+     */
+    private static RunOptions parseRunOptions(String argument) {
+        RunOptions.Builder builder = RunOptions.builder();
+        if (argument.isEmpty()) {
+            return builder.build();
+        }
+        String[] parts = argument.split("\\s+");
+        builder.setMaxInstructions(Long.parseLong(parts[0]));
+        if (parts.length > 1) {
+            builder.setTimeout(Duration.ofMillis(Long.parseLong(parts[1])));
+        }
+        return builder.build();
+    }
+
     private void loadProgramFromConsole(Scanner scanner) {
         List<String> lines = new ArrayList<>();
         System.out.println("Enter LEGv8 program (end with 'end'):");
@@ -73,7 +150,14 @@ public class LEGv8Console {
             System.err.println("Failed to load instructions.txt");
             return;
         }
-        CPUSimulator simulator = new CPUSimulator(configLoader);
+        // Optional argument: --memory=dense|paged|offheap:<MB>|file:<MB>:<path>|image:<MB>:<path>
+        Memory memory = new Memory();
+        for (String arg : args) {
+            if (arg.startsWith("--memory=")) {
+                memory = Memory.fromSpec(arg.substring("--memory=".length()));
+            }
+        }
+        CPUSimulator simulator = new CPUSimulator(configLoader, memory);
         LEGv8Console console = new LEGv8Console(simulator);
         console.runConsole();
     }
@@ -642,7 +642,7 @@ private JFrame datapathFrame;
 
     private void showHelp() {
         JOptionPane.showMessageDialog(frame,
-                "Help:\n- Assemble: Load program\n- Run: Execute all\n- Step Forward/Back: Single step\n- Restart: Reset program\n- Clear All: Clear all fields\n- Datapath: Open datapath visualization\n  - Auto Run: Automatically execute all steps\n  - Speed control: Adjust auto-run delay\nSupported instructions: ADD, SUB, MOVZ, MOV, MOVK, AND, ORR, LDUR, STUR, ADDI, SUBI, B, EOR, MUL, SDIV, UDIV, LSL, LSR, ASR, CMP, SMULH, UMULH",
+                "Help:\n- Assemble: Load program\n- Run: Execute all\n- Step Forward/Back: Single step\n- Restart: Reset program\n- Clear All: Clear all fields\n- Datapath: Open datapath visualization\n  - Auto Run: Automatically execute all steps\n  - Speed control: Adjust auto-run delay\nSupported instructions: ADD, SUB, MOVZ, MOV, MOVK, AND, ORR, LDUR, STUR, LDURB, LDURH, LDURSW, STURB, STURH, STURW, ADDI, SUBI, B, BL, BR, RET, CBZ, CBNZ, B.cond, EOR, MUL, SDIV, UDIV, LSL, LSR, ASR, CMP, SMULH, UMULH",
                 "Help", JOptionPane.INFORMATION_MESSAGE);
     }
 
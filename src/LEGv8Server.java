@@ -0,0 +1,315 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import core.*;
+import instruction.AssembledProgram;
+import instruction.Instruction;
+import instruction.InstructionConfigLoader;
+import instruction.InstructionFactory;
+import util.ColoredLog;
+import util.Constants;
+import util.JsonUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local HTTP service for the LEGv8 CPU Simulator, bound to the loopback interface only.
+ * Every request is simulated on its own {@link CPUSimulator}; the instruction configuration and the
+ * assembler (with its program cache) are shared.
+ * <p>
+ * {@code POST /run?max-instructions=N&timeout-ms=N&trace=N} takes a text/plain body: optional initial-state
+ * lines in the {@link StateFixture} format, a line {@code ---}, then the assembly source (without
+ * {@code ---} the whole body is source). The response is JSON with the run status, instruction count,
+ * elapsed time, final registers, flags and non-zero memory words, and the first N executed instructions
+ * if {@code trace} is given. {@code GET /health} reports the load of the worker pool.
+ * <p>
+ * Requests run on a fixed pool of worker threads with a bounded admission queue. When the queue is full
+ * the request is answered with 503 at once instead of waiting.
+ * <p>
+ * Usage: {@code LEGv8Server [--port=N] [--threads=N] [--queue=N] [--max-instructions=N] [--timeout-ms=N]
+ * [--config=<instructions.txt>]}
+ */
+public class LEGv8Server {
+    private static final String DEFAULT_CONFIG = "D:/LEGv8_Simulator/src/instruction/instructions.txt";
+    private static final int MAX_BODY_BYTES = 1 << 20;
+    private static final int MAX_TRACE = 10_000;
+    private static final String STATE_SEPARATOR = "---";
+
+    /**
+     * Set while the dispatcher thread runs an exchange that the full worker pool rejected.
+     */
+    private static final ThreadLocal<Boolean> REJECTED = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final InstructionConfigLoader configLoader;
+    private final InstructionFactory factory;
+    private final long maxInstructions;
+    private final Duration timeout;
+    private final ThreadPoolExecutor workers;
+
+    public LEGv8Server(InstructionConfigLoader configLoader, int threads, int queueCapacity, long maxInstructions, Duration timeout) {
+        this.configLoader = configLoader;
+        this.factory = new InstructionFactory(configLoader);
+        this.maxInstructions = maxInstructions;
+        this.timeout = timeout;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "legv8-sim-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // HttpServer hands us its exchange as an opaque task, so a rejected exchange is run on the
+                // dispatcher thread with a flag set and the handler answers it with 503 straight away.
+                (task, executor) -> {
+                    REJECTED.set(Boolean.TRUE);
+                    try {
+                        task.run();
+                    } finally {
+                        REJECTED.set(Boolean.FALSE);
+                    }
+                });
+    }
+
+    /**
+     * Starts the service.
+     * @param port The port on the loopback interface, or 0 for any free port.
+     * @return The running server.
+     * @throws IOException if the port cannot be bound.
+     */
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/run", this::handleRun);
+        server.createContext("/health", this::handleHealth);
+        server.setExecutor(workers);
+        server.start();
+        return server;
+    }
+
+    private void handleHealth(HttpExchange exchange) throws IOException {
+        // Cheap enough to answer even when the pool is full, so it also works on the dispatcher thread
+        send(exchange, 200, String.format("{\"status\":\"ok\",\"active\":%d,\"queued\":%d,\"completed\":%d}",
+                workers.getActiveCount(), workers.getQueue().size(), workers.getCompletedTaskCount()));
+    }
+
+    private void handleRun(HttpExchange exchange) throws IOException {
+        if (REJECTED.get()) {
+            sendOverloaded(exchange);
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            sendError(exchange, 405, "Use POST");
+            return;
+        }
+        try {
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            String body = readBody(exchange.getRequestBody());
+            send(exchange, 200, simulate(body, query));
+        } catch (IllegalArgumentException e) {
+            sendError(exchange, 400, e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.printf("%sRequest failed: %s%n", ColoredLog.ERROR, e);
+            sendError(exchange, 500, e.toString());
+        }
+    }
+
+    /**
+     * Assembles and runs one request on a fresh simulator.
+     * @return The JSON response.
+     * @throws IllegalArgumentException if the request is malformed or does not assemble.
+     */
+    private String simulate(String body, Map<String, String> query) {
+        long budget = Math.min(maxInstructions, parseLong(query, "max-instructions", maxInstructions));
+        Duration runTimeout = Duration.ofMillis(Math.min(timeout.toMillis(), parseLong(query, "timeout-ms", timeout.toMillis())));
+        int traceLimit = (int) Math.min(MAX_TRACE, parseLong(query, "trace", 0));
+
+        List<String> lines = Arrays.asList(body.split("\r?\n", -1));
+        StateFixture initialState = StateFixture.EMPTY;
+        int separator = lines.indexOf(STATE_SEPARATOR);
+        if (separator >= 0) {
+            initialState = StateFixture.parse(lines.subList(0, separator));
+            lines = lines.subList(separator + 1, lines.size());
+        }
+        AssembledProgram program = factory.assemble(lines.toArray(new String[0]));
+        if (!program.getDiagnostics().isEmpty()) {
+            throw new IllegalArgumentException("Assembly failed: " + String.join("; ", program.getDiagnostics()));
+        }
+
+        CPUSimulator simulator = new CPUSimulator(configLoader);
+        simulator.setQuiet(true);
+        simulator.loadProgram(program);
+        try {
+            initialState.applyTo(simulator);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid initial state: " + e.getMessage(), e);
+        }
+
+        long start = System.nanoTime();
+        StringBuilder trace = new StringBuilder();
+        long traced = 0;
+        RunOutcome outcome = null;
+        if (traceLimit > 0) {
+            // Trace the first instructions one at a time, then run the rest at full speed
+            RunOptions single = RunOptions.builder().setMaxInstructions(1).build();
+            while (traced < Math.min(traceLimit, budget) && !simulator.isFinished()) {
+                int pc = simulator.getPc();
+                if (pc >= 0 && pc < simulator.getInstructionCount()) {
+                    Instruction instruction = simulator.getProgram().get(pc);
+                    trace.append(trace.length() == 0 ? "" : ",")
+                            .append(String.format("{\"pc\":%d,\"instruction\":%s}", pc, JsonUtils.quote(instruction.disassemble())));
+                }
+                outcome = simulator.run(single);
+                traced += outcome.getInstructionCount();
+                if (outcome.getStatus() == RunOutcome.Status.FAULTED) {
+                    break;
+                }
+            }
+        }
+        if (outcome == null || outcome.getStatus() != RunOutcome.Status.FAULTED) {
+            Duration remaining = runTimeout.minusNanos(System.nanoTime() - start);
+            outcome = simulator.run(RunOptions.builder()
+                    .setMaxInstructions(budget - traced)
+                    .setTimeout(remaining.isNegative() ? Duration.ZERO : remaining)
+                    .build());
+        }
+        return formatResponse(simulator, outcome, traced + outcome.getInstructionCount(),
+                Duration.ofNanos(System.nanoTime() - start), traceLimit > 0 ? trace.toString() : null);
+    }
+
+    private static String formatResponse(CPUSimulator simulator, RunOutcome outcome, long instructions, Duration elapsed, String trace) {
+        StringBuilder json = new StringBuilder(1024);
+        json.append("{\"status\":\"").append(outcome.getStatus()).append('"')
+            .append(",\"message\":").append(JsonUtils.quote(outcome.getMessage()))
+            .append(",\"instructions\":").append(instructions)
+            .append(",\"elapsed_us\":").append(elapsed.toNanos() / 1000)
+            .append(",\"pc\":").append(simulator.getPc());
+        json.append(",\"registers\":{");
+        for (int i = 0; i < Constants.NUM_REGISTERS; i++) {
+            json.append(i == 0 ? "" : ",").append("\"X").append(i).append("\":").append(simulator.getRegisterValue(i));
+        }
+        json.append("},\"flags\":{")
+            .append("\"N\":").append(simulator.isNegativeFlag())
+            .append(",\"Z\":").append(simulator.isZeroFlag())
+            .append(",\"C\":").append(simulator.isCarryFlag())
+            .append(",\"V\":").append(simulator.isOverflowFlag());
+        json.append("},\"memory\":{");
+        boolean first = true;
+        for (Map.Entry<Long, Long> word : new TreeMap<>(simulator.getMemoryState()).entrySet()) {
+            json.append(first ? "" : ",").append(String.format("\"0x%X\":%d", word.getKey(), word.getValue()));
+            first = false;
+        }
+        json.append('}');
+        if (trace != null) {
+            json.append(",\"trace\":[").append(trace).append(']');
+        }
+        return json.append('}').toString();
+    }
+
+    private static String readBody(InputStream in) throws IOException {
+        byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+        if (bytes.length > MAX_BODY_BYTES) {
+            throw new IllegalArgumentException("Request body larger than " + MAX_BODY_BYTES + " bytes");
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return query;
+        }
+        for (String pair : rawQuery.split("&")) {
+            int equals = pair.indexOf('=');
+            String key = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            query.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return query;
+    }
+
+    private static long parseLong(Map<String, String> query, String name, long defaultValue) {
+        String value = query.get(name);
+        if (value == null || value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            long parsed = Long.parseLong(value);
+            if (parsed < 0) {
+                throw new IllegalArgumentException(name + " cannot be negative: " + value);
+            }
+            return parsed;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value);
+        }
+    }
+
+    private static void sendOverloaded(HttpExchange exchange) throws IOException {
+        exchange.getResponseHeaders().set("Retry-After", "1");
+        sendError(exchange, 503, "Server busy, try again later");
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        send(exchange, status, "{\"error\":" + JsonUtils.quote(message) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = 8080;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int queue = 64;
+        long maxInstructions = 100_000_000L;
+        long timeoutMs = 10_000;
+        String config = DEFAULT_CONFIG;
+        for (String arg : args) {
+            if (arg.startsWith("--port=")) {
+                port = Integer.parseInt(arg.substring("--port=".length()));
+            } else if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--queue=")) {
+                queue = Integer.parseInt(arg.substring("--queue=".length()));
+            } else if (arg.startsWith("--max-instructions=")) {
+                maxInstructions = Long.parseLong(arg.substring("--max-instructions=".length()));
+            } else if (arg.startsWith("--timeout-ms=")) {
+                timeoutMs = Long.parseLong(arg.substring("--timeout-ms=".length()));
+            } else if (arg.startsWith("--config=")) {
+                config = arg.substring("--config=".length());
+            } else {
+                System.err.println("Usage: LEGv8Server [--port=N] [--threads=N] [--queue=N] [--max-instructions=N] "
+                        + "[--timeout-ms=N] [--config=<instructions.txt>]");
+                System.exit(2);
+            }
+        }
+
+        InstructionConfigLoader configLoader = new InstructionConfigLoader();
+        if (!configLoader.loadConfig(config)) {
+            System.err.println(ColoredLog.ERROR + "Failed to load " + config);
+            System.exit(2);
+        }
+        HttpServer server = new LEGv8Server(configLoader, threads, queue, maxInstructions, Duration.ofMillis(timeoutMs)).start(port);
+        System.out.printf("%sLEGv8 simulator service on http://%s:%d/run (%d worker(s), queue %d)%n",
+                ColoredLog.SUCCESS, server.getAddress().getHostString(), server.getAddress().getPort(), threads, queue);
+    }
+}
@@ -1,7 +1,5 @@
 package core;
 
-import java.util.EnumSet;
-
 /**
  * Simulates the LEGv8 Arithmetic Logic Unit (ALU).
  */
@@ -32,88 +30,125 @@ public class ArithmeticLogicUnit {
         }
     }
 
-    // Các phép toán cần tính cờ Carry và Overflow
-    private static final EnumSet<ALUOperation> FLAG_AFFECTING_ARITHMETIC = EnumSet.of(ALUOperation.ADD, ALUOperation.SUB);
-
-    public ALUResult execute(long a, long b, ALUOperation op) {
-        long result = 0;
+    // Packed NZCV flags, in the same bit order as the ARM PSTATE nibble
+    public static final int FLAG_N = 0b1000;
+    public static final int FLAG_Z = 0b0100;
+    public static final int FLAG_C = 0b0010;
+    public static final int FLAG_V = 0b0001;
 
+    /**
+     * Computes the result of an operation without allocating.
+     * @param a Operand A (Rn).
+     * @param b Operand B (Rm, immediate or shift amount).
+     * @param op The operation.
+     * @return The 64-bit result.
+     * @throws ArithmeticException on division by zero.
+     */
+    public long compute(long a, long b, ALUOperation op) {
         switch (op) {
             case ADD:
-                result = a + b;
-                break;
+                return a + b;
             case SUB:
-                result = a - b;
-                break;
+                return a - b;
             case AND:
-                result = a & b;
-                break;
+                return a & b;
             case ORR:
-                result = a | b;
-                break;
+                return a | b;
             case EOR:
-                result = a ^ b;
-                break;
+                return a ^ b;
             case MUL:
-                result = a * b;
-                break;
+                return a * b;
             case SMULH:
-                // Signed multiply high: return upper 64 bits of 128-bit result
-                result = Math.multiplyHigh(a, b);
-                break;
+                // Signed multiply high: upper 64 bits of the 128-bit product
+                return Math.multiplyHigh(a, b);
             case UMULH:
-                // Unsigned multiply high: return upper 64 bits of 128-bit result
-                // For unsigned multiplication, we can use BigInteger for accuracy
-                java.math.BigInteger bigA = new java.math.BigInteger(Long.toUnsignedString(a));
-                java.math.BigInteger bigB = new java.math.BigInteger(Long.toUnsignedString(b));
-                java.math.BigInteger product = bigA.multiply(bigB);
-                result = product.shiftRight(64).longValue();
-                break;
+                return unsignedMultiplyHigh(a, b);
             case SDIV:
                 if (b == 0) throw new ArithmeticException("Division by zero");
-                result = a / b;
-                break;
-            case UDIV: // SỬA LỖI: Sử dụng phép chia 64-bit không dấu
+                return a / b;
+            case UDIV: // Phép chia 64-bit không dấu
                 if (b == 0) throw new ArithmeticException("Division by zero");
-                result = Long.divideUnsigned(a, b);
-                break;
+                return Long.divideUnsigned(a, b);
             case LSL:
-                result = a << b;
-                break;
+                return a << b;
             case LSR:
-                result = a >>> b;
-                break;
+                return a >>> b;
             case ASR:
-                result = a >> b;
-                break;
+                return a >> b;
             case PASS_B: // Dùng cho MOVZ, ADDI (trong trường hợp rn=XZR)
-                result = b;
-                break;
+                return b;
             default:
                 throw new IllegalArgumentException("Unsupported ALU operation: " + op);
         }
+    }
 
-        // --- Cập nhật cờ trạng thái (Flags) ---
-        boolean n_flag = (result < 0);
-        boolean z_flag = (result == 0);
-        boolean c_flag = false;
-        boolean v_flag = false;
+    /**
+     * Computes the NZCV flags of an operation as a packed {@code FLAG_*} mask.
+     * N and Z follow the result; C and V are only produced by ADD and SUB.
+     * @param a Operand A.
+     * @param b Operand B.
+     * @param result The result from {@link #compute}.
+     * @param op The operation.
+     * @return The packed flags.
+     */
+    public static int flags(long a, long b, long result, ALUOperation op) {
+        int flags = (result < 0 ? FLAG_N : 0) | (result == 0 ? FLAG_Z : 0);
+        if (op == ALUOperation.ADD) {
+            // Carry: tổng không dấu nhỏ hơn toán hạng ban đầu
+            // Overflow: dấu của 2 toán hạng giống nhau và khác dấu kết quả
+            flags |= (Long.compareUnsigned(result, a) < 0 ? FLAG_C : 0)
+                   | ((((a ^ result) & (b ^ result)) < 0) ? FLAG_V : 0);
+        } else if (op == ALUOperation.SUB) {
+            // Carry (not-borrow): a >= b (không dấu)
+            // Overflow: dấu của a và b khác nhau, và dấu kết quả giống b
+            flags |= (Long.compareUnsigned(a, b) >= 0 ? FLAG_C : 0)
+                   | ((((a ^ b) & (a ^ result)) < 0) ? FLAG_V : 0);
+        }
+        return flags;
+    }
 
-        // C và V chỉ được tính cho các phép toán số học nhất định
-        if (FLAG_AFFECTING_ARITHMETIC.contains(op)) {
-            if (op == ALUOperation.ADD) {
-                // Carry: xảy ra khi tổng không dấu nhỏ hơn toán hạng ban đầu
-                c_flag = Long.compareUnsigned(result, a) < 0;
-                // Overflow: xảy ra khi dấu của 2 toán hạng giống nhau và khác dấu kết quả
-                v_flag = ((a ^ result) & (b ^ result)) < 0;
-            } else if (op == ALUOperation.SUB) {
-                // Carry (not-borrow): xảy ra khi a >= b (không dấu)
-                c_flag = Long.compareUnsigned(a, b) >= 0;
-                // Overflow: xảy ra khi dấu của a và b khác nhau, và dấu kết quả giống b
-                v_flag = ((a ^ b) & (a ^ result)) < 0;
-            }
+    /**
+     * Evaluates a B.cond condition code against packed flags.
+     * @param condition The 4-bit condition code (EQ=0, NE=1, HS, LO, MI, PL, VS, VC, HI, LS, GE, LT, GT, LE, AL, NV).
+     * @param nzcv The packed flags.
+     * @return True if the branch is taken.
+     */
+    public static boolean conditionHolds(int condition, int nzcv) {
+        boolean n = (nzcv & FLAG_N) != 0;
+        boolean z = (nzcv & FLAG_Z) != 0;
+        boolean c = (nzcv & FLAG_C) != 0;
+        boolean v = (nzcv & FLAG_V) != 0;
+        boolean result;
+        switch ((condition >> 1) & 0x7) {
+            case 0: result = z; break;            // EQ / NE
+            case 1: result = c; break;            // HS / LO
+            case 2: result = n; break;            // MI / PL
+            case 3: result = v; break;            // VS / VC
+            case 4: result = c && !z; break;      // HI / LS
+            case 5: result = n == v; break;       // GE / LT
+            case 6: result = !z && n == v; break; // GT / LE
+            default: return true;                 // AL / NV
         }
+        // Odd codes are the negation of the even code before them
+        return (condition & 1) != 0 ? !result : result;
+    }
 
-        return new ALUResult(result, n_flag, z_flag, c_flag, v_flag);
+    /**
+     * Upper 64 bits of the unsigned 128-bit product, derived from the signed high product:
+     * reading a negative operand as unsigned adds 2^64 times the other operand.
+     */
+    static long unsignedMultiplyHigh(long a, long b) {
+        return Math.multiplyHigh(a, b) + ((a >> 63) & b) + ((b >> 63) & a);
+    }
+
+    /**
+     * Computes an operation and its flags as an object. Allocates; hot paths use
+     * {@link #compute} and {@link #flags} instead.
+     */
+    public ALUResult execute(long a, long b, ALUOperation op) {
+        long result = compute(a, b, op);
+        int flags = flags(a, b, result, op);
+        return new ALUResult(result, (flags & FLAG_N) != 0, (flags & FLAG_Z) != 0,
+                (flags & FLAG_C) != 0, (flags & FLAG_V) != 0);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,206 @@
+package core;
+
+import instruction.DecodedInstruction;
+import instruction.Instruction;
+import java.util.List;
+import util.Constants;
+
+/**
+ * A straight-line run of instructions translated once into a compact op-array for the
+ * {@link FunctionalExecutor}. Operands are pre-bound into parallel primitive arrays: register
+ * numbers are already resolved (writes to XZR go to {@link RegisterStorage#DISCARD}), immediates
+ * are already shifted, branch targets are absolute instruction indices, and only the final instruction
+ * of a block may branch.
+ */
+final class BasicBlock {
+    // --- Op codes ---
+    static final int OP_GENERIC = 0;  // Flag-setting or unsupported: run through FunctionalExecutor.execute
+    static final int OP_ADD = 1;
+    static final int OP_SUB = 2;
+    static final int OP_AND = 3;
+    static final int OP_ORR = 4;
+    static final int OP_EOR = 5;
+    static final int OP_MUL = 6;
+    static final int OP_SMULH = 7;
+    static final int OP_SDIV = 8;
+    static final int OP_UDIV = 9;
+    static final int OP_LSL = 10;     // Shift amount in imm
+    static final int OP_LSR = 11;
+    static final int OP_ASR = 12;
+    static final int OP_ADDI = 13;
+    static final int OP_SUBI = 14;
+    static final int OP_MOV = 15;     // rd = imm (MOVZ/MOVK with the shift applied)
+    static final int OP_LOAD = 16;    // rm = access size
+    static final int OP_LOAD_SIGNED = 17;
+    static final int OP_STORE = 18;
+    static final int OP_BRANCH = 19;  // Unconditional; target in imm
+    static final int OP_CBZ = 20;     // Tested register in rn, target in imm
+    static final int OP_CBNZ = 21;
+    static final int OP_BCOND = 22;   // Condition code in rm, target in imm
+    static final int OP_BL = 23;      // rd = link register, target in imm
+    static final int OP_BR = 24;      // Target register in rn
+
+    final int startPc;
+    final int length;
+    final int[] ops;
+    final int[] rd;
+    final int[] rn;
+    final int[] rm;
+    final long[] imm;
+    final Instruction[] instructions; // For OP_GENERIC and fault reporting
+
+    // JIT tier
+    int executionCount;
+    CompiledBlock compiled;
+
+    private BasicBlock(int startPc, int length) {
+        this.startPc = startPc;
+        this.length = length;
+        this.ops = new int[length];
+        this.rd = new int[length];
+        this.rn = new int[length];
+        this.rm = new int[length];
+        this.imm = new long[length];
+        this.instructions = new Instruction[length];
+    }
+
+    /**
+     * @return The PC after the block when its last instruction does not branch.
+     */
+    int fallThroughPc() {
+        return startPc + length;
+    }
+
+    /**
+     * Translates the block starting at {@code startPc}. The block ends after a branch, before the
+     * next leader, or at the end of the program.
+     * @param program The loaded program.
+     * @param startPc The first instruction of the block.
+     * @param leaders Marks instructions that start a block (branch targets and instructions after a branch).
+     * @return The translated block.
+     */
+    static BasicBlock translate(List<Instruction> program, int startPc, boolean[] leaders) {
+        int end = startPc;
+        while (end < program.size()) {
+            boolean branch = isBranch(program.get(end).getDecoded());
+            end++;
+            if (branch || (end < leaders.length && leaders[end])) break;
+        }
+
+        BasicBlock block = new BasicBlock(startPc, end - startPc);
+        for (int i = 0; i < block.length; i++) {
+            int pc = startPc + i;
+            Instruction instruction = program.get(pc);
+            DecodedInstruction d = instruction.getDecoded();
+            block.instructions[i] = instruction;
+            block.rd[i] = d.regWrite && d.rd != 31 ? d.rd : RegisterStorage.DISCARD;
+            block.rn[i] = d.rn;
+            block.rm[i] = d.rm;
+            block.imm[i] = d.immediate;
+            block.ops[i] = opFor(d);
+            switch (block.ops[i]) {
+                case OP_LSL: case OP_LSR: case OP_ASR:
+                    block.imm[i] = d.shamt;
+                    break;
+                case OP_MOV:
+                    block.imm[i] = d.immediate << (d.shift * 16);
+                    break;
+                case OP_LOAD: case OP_LOAD_SIGNED:
+                    block.rd[i] = d.rd != 31 ? d.rd : RegisterStorage.DISCARD; // Loads always write back
+                    block.rm[i] = d.accessSize;
+                    break;
+                case OP_STORE:
+                    block.rd[i] = d.rd; // Source register, read not written
+                    block.rm[i] = d.accessSize;
+                    break;
+                case OP_BRANCH:
+                    block.imm[i] = d.target;
+                    break;
+                case OP_CBZ: case OP_CBNZ:
+                    block.rn[i] = d.rd;
+                    block.imm[i] = d.target;
+                    break;
+                case OP_BL:
+                    block.rd[i] = Constants.LINK_REGISTER;
+                    block.imm[i] = d.target;
+                    break;
+                case OP_BCOND:
+                    block.rn[i] = 31; // Reads no register
+                    block.rm[i] = d.rd;
+                    block.imm[i] = d.target;
+                    break;
+                default:
+                    break;
+            }
+        }
+        return block;
+    }
+
+    /**
+     * Finds the instructions that start a basic block: the first instruction, every direct branch target
+     * (the label positions resolved by the assembler) and every instruction following a branch.
+     * BR targets are only known at run time; the cache translates a block wherever one starts.
+     * @param program The loaded program.
+     * @return One flag per instruction.
+     */
+    static boolean[] findLeaders(List<Instruction> program) {
+        boolean[] leaders = new boolean[program.size()];
+        if (leaders.length > 0) {
+            leaders[0] = true;
+        }
+        for (int pc = 0; pc < leaders.length; pc++) {
+            DecodedInstruction d = program.get(pc).getDecoded();
+            if (!isBranch(d)) continue;
+            int target = d.target;
+            if (target >= 0 && target < leaders.length) {
+                leaders[target] = true;
+            }
+            if (pc + 1 < leaders.length) {
+                leaders[pc + 1] = true;
+            }
+        }
+        return leaders;
+    }
+
+    private static boolean isBranch(DecodedInstruction d) {
+        switch (d.operation) {
+            case B: case BL: case BR: case CBZ: case CBNZ: case B_COND:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static int opFor(DecodedInstruction d) {
+        if (d.flagWrite) {
+            return OP_GENERIC;
+        }
+        switch (d.operation) {
+            case ADD:   return OP_ADD;
+            case SUB:   return OP_SUB;
+            case AND:   return OP_AND;
+            case ORR:   return OP_ORR;
+            case EOR:   return OP_EOR;
+            case MUL:   return OP_MUL;
+            case SMULH: return OP_SMULH;
+            case SDIV:  return OP_SDIV;
+            case UDIV:  return OP_UDIV;
+            case LSL:   return OP_LSL;
+            case LSR:   return OP_LSR;
+            case ASR:   return OP_ASR;
+            case ADDI:  return OP_ADDI;
+            case SUBI:  return OP_SUBI;
+            case MOVZ:
+            case MOVK:  return OP_MOV;
+            case LDUR:  return d.signExtendLoad ? OP_LOAD_SIGNED : OP_LOAD;
+            case STUR:  return OP_STORE;
+            case B:     return OP_BRANCH;
+            case BL:    return OP_BL;
+            case BR:    return OP_BR;
+            case CBZ:   return OP_CBZ;
+            case CBNZ:  return OP_CBNZ;
+            case B_COND: return OP_BCOND;
+            default:    return OP_GENERIC;
+        }
+    }
+}
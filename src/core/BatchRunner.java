@@ -0,0 +1,244 @@
+package core;
+
+import instruction.AssembledProgram;
+import instruction.InstructionConfigLoader;
+import instruction.InstructionFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Runs many independent jobs (program, initial state, expected state) concurrently on a fixed thread pool.
+ * Every job gets its own {@link CPUSimulator}; the read-only {@link InstructionConfigLoader} and one
+ * {@link InstructionFactory} are shared, and each program file is assembled once per batch.
+ */
+public final class BatchRunner implements AutoCloseable {
+
+    /**
+     * One run of a program from an initial state.
+     */
+    public static final class Job {
+        private final String id;
+        private final Path program;
+        private final Path fixture;
+        private final Path expected;
+        private final RunOptions options;
+
+        /**
+         * @param id A name for the job in the results.
+         * @param program The assembly source file.
+         * @param fixture The initial state file, or null to start from the reset state.
+         * @param expected The expected state file, or null to only require the program to complete.
+         * @param options The budgets for the run.
+         */
+        public Job(String id, Path program, Path fixture, Path expected, RunOptions options) {
+            this.id = id;
+            this.program = program;
+            this.fixture = fixture;
+            this.expected = expected;
+            this.options = options;
+        }
+
+        public String getId() { return id; }
+        public Path getProgram() { return program; }
+        public Path getFixture() { return fixture; }
+        public Path getExpected() { return expected; }
+        public RunOptions getOptions() { return options; }
+
+        @Override
+        public String toString() {
+            return String.format("Job[id=%s, program=%s, fixture=%s, expected=%s]", id, program, fixture, expected);
+        }
+    }
+
+    /**
+     * The verdict of one job.
+     */
+    public enum Verdict {
+        PASS,   // The program completed and matched the expected state
+        FAIL,   // The program did not complete, or its final state differs
+        ERROR   // The job could not be run: unreadable file, assembly error, bad fixture
+    }
+
+    /**
+     * The result of one job.
+     */
+    public static final class Result {
+        private final Job job;
+        private final Verdict verdict;
+        private final RunOutcome outcome;
+        private final List<String> mismatches;
+        private final String message;
+        private final Duration elapsed;
+
+        Result(Job job, Verdict verdict, RunOutcome outcome, List<String> mismatches, String message, Duration elapsed) {
+            this.job = job;
+            this.verdict = verdict;
+            this.outcome = outcome;
+            this.mismatches = List.copyOf(mismatches);
+            this.message = message;
+            this.elapsed = elapsed;
+        }
+
+        public Job getJob() { return job; }
+        public Verdict getVerdict() { return verdict; }
+
+        /**
+         * @return The outcome of the run, or null if the job could not be run.
+         */
+        public RunOutcome getOutcome() { return outcome; }
+
+        /**
+         * @return The differences from the expected state.
+         */
+        public List<String> getMismatches() { return mismatches; }
+
+        /**
+         * @return Why the job failed or could not be run, or the outcome message if it passed.
+         */
+        public String getMessage() { return message; }
+
+        /**
+         * @return The instructions executed, or 0 if the job could not be run.
+         */
+        public long getInstructionCount() { return outcome != null ? outcome.getInstructionCount() : 0; }
+
+        /**
+         * @return The wall-clock time of the whole job, including loading and checking.
+         */
+        public Duration getElapsed() { return elapsed; }
+
+        @Override
+        public String toString() {
+            return String.format("%s %s: %s (%d instruction(s), %d ms)",
+                    verdict, job.id, message, getInstructionCount(), elapsed.toMillis());
+        }
+    }
+
+    private final InstructionConfigLoader configLoader;
+    private final InstructionFactory factory;
+    private final ExecutorService pool;
+    private final Map<Path, AssembledProgram> programs = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor for BatchRunner.
+     * @param configLoader The loaded instruction configuration, shared by all jobs.
+     * @param threads The number of jobs run at once.
+     */
+    public BatchRunner(InstructionConfigLoader configLoader, int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Thread count must be positive: " + threads);
+        }
+        this.configLoader = configLoader;
+        this.factory = new InstructionFactory(configLoader);
+        this.pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "legv8-batch");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the jobs and hands each result to {@code sink} as soon as its job finishes, so results arrive in
+     * completion order, not submission order. {@code sink} is always called on the calling thread.
+     * @param jobs The jobs.
+     * @param sink Receives one result per job.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     */
+    public void run(List<Job> jobs, Consumer<Result> sink) throws InterruptedException {
+        CompletionService<Result> completion = new ExecutorCompletionService<>(pool);
+        for (Job job : jobs) {
+            completion.submit(() -> runJob(job));
+        }
+        for (int i = 0; i < jobs.size(); i++) {
+            try {
+                sink.accept(completion.take().get());
+            } catch (ExecutionException e) {
+                // runJob turns every exception into a result, so only an Error can get here
+                throw new IllegalStateException("Batch job crashed", e.getCause());
+            }
+        }
+    }
+
+    /**
+     * Runs one job on the current thread.
+     * @param job The job.
+     * @return Its result; exceptions are reported as an ERROR or FAIL verdict.
+     */
+    public Result runJob(Job job) {
+        long start = System.nanoTime();
+        CPUSimulator simulator;
+        StateFixture expected;
+        try {
+            AssembledProgram program = assemble(job.program);
+            if (!program.getDiagnostics().isEmpty()) {
+                return error(job, start, "Assembly failed: " + String.join("; ", program.getDiagnostics()));
+            }
+            StateFixture fixture = job.fixture != null ? StateFixture.read(job.fixture) : StateFixture.EMPTY;
+            expected = job.expected != null ? StateFixture.read(job.expected) : StateFixture.EMPTY;
+            simulator = new CPUSimulator(configLoader);
+            simulator.setQuiet(true);
+            simulator.loadProgram(program);
+            fixture.applyTo(simulator);
+        } catch (IOException e) {
+            return error(job, start, "Cannot read file: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            return error(job, start, "Cannot read file: " + e.getCause().getMessage());
+        } catch (RuntimeException e) {
+            return error(job, start, e.getMessage());
+        }
+
+        RunOutcome outcome = simulator.run(job.options);
+        if (!outcome.isCompleted()) {
+            return new Result(job, Verdict.FAIL, outcome, List.of(), outcome.getMessage(), since(start));
+        }
+        List<String> mismatches;
+        try {
+            mismatches = expected.mismatches(simulator);
+        } catch (RuntimeException e) {
+            return new Result(job, Verdict.ERROR, outcome, List.of(), "Cannot check expected state: " + e.getMessage(), since(start));
+        }
+        return mismatches.isEmpty()
+                ? new Result(job, Verdict.PASS, outcome, mismatches, outcome.getMessage(), since(start))
+                : new Result(job, Verdict.FAIL, outcome, mismatches, mismatches.size() + " mismatch(es)", since(start));
+    }
+
+    private AssembledProgram assemble(Path source) {
+        return programs.computeIfAbsent(source.toAbsolutePath().normalize(), path -> {
+            try {
+                return factory.assemble(Files.readAllLines(path, StandardCharsets.UTF_8).toArray(new String[0]));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static Result error(Job job, long start, String message) {
+        return new Result(job, Verdict.ERROR, null, List.of(), message, since(start));
+    }
+
+    private static Duration since(long start) {
+        return Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Stops the worker threads. Jobs still queued are not run.
+     */
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,63 @@
+package core;
+
+import instruction.Instruction;
+import java.util.List;
+
+/**
+ * Translation cache for the fast path: maps a start PC to its {@link BasicBlock}, translating
+ * each block the first time execution reaches it. A cache belongs to one loaded program and is
+ * replaced when a new program is loaded.
+ * <p>
+ * Each block also counts how often it is entered. Once a count reaches the JIT threshold the block
+ * is compiled to JVM bytecode by the {@link JitCompiler}, and later executions run the compiled code.
+ */
+final class BlockCache {
+    private final List<Instruction> program;
+    private final boolean[] leaders;
+    private final BasicBlock[] blocks; // Indexed by start PC
+    private final JitCompiler jit;
+    private final int jitThreshold;
+
+    /**
+     * @param program The loaded program.
+     * @param jit The compiler for hot blocks, or null to interpret only.
+     * @param jitThreshold Executions of a block before it is compiled.
+     */
+    BlockCache(List<Instruction> program, JitCompiler jit, int jitThreshold) {
+        this.program = program;
+        this.leaders = BasicBlock.findLeaders(program);
+        this.blocks = new BasicBlock[program.size()];
+        this.jit = jit;
+        this.jitThreshold = jitThreshold;
+    }
+
+    /**
+     * Looks up the block about to be executed and counts the execution.
+     * @param pc A PC inside the program.
+     * @return The block starting at {@code pc}, translated on first use and compiled once hot.
+     */
+    BasicBlock enter(int pc) {
+        BasicBlock block = blocks[pc];
+        if (block == null) {
+            block = BasicBlock.translate(program, pc, leaders);
+            blocks[pc] = block;
+        }
+        if (jit != null && block.executionCount < jitThreshold && ++block.executionCount == jitThreshold) {
+            block.compiled = jit.compile(block); // Stays null if compilation fails
+        }
+        return block;
+    }
+
+    /**
+     * @return The number of blocks compiled to bytecode.
+     */
+    int getCompiledBlockCount() {
+        int count = 0;
+        for (BasicBlock block : blocks) {
+            if (block != null && block.compiled != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -1,8 +1,6 @@
 package core;
 import datapath.*;
 
-import java.util.Map;
-
 /**
  * Integrates CPUSimulator with DatapathPanel for execution history functionality.
  * This class manages the synchronization between CPU state and visualization state.
@@ -59,11 +57,8 @@ public class CPUDatapathIntegrator implements ExecutionHistoryListener {
             datapathPanel.updateRegisterValue(i, regValue);
         }
         
-        // Update memory state
-        Map<Long, Long> memoryState = cpuSimulator.getMemoryState();
-        for (Map.Entry<Long, Long> entry : memoryState.entrySet()) {
-            datapathPanel.updateMemoryValue(entry.getKey(), entry.getValue());
-        }
+        // Update memory state (only words changed since the last update)
+        cpuSimulator.drainMemoryChanges(datapathPanel::updateMemoryValue);
         
         // Update visualization components and buses
         datapathPanel.setActiveComponentsAndBuses(
@@ -108,9 +103,9 @@ public class CPUDatapathIntegrator implements ExecutionHistoryListener {
     }
     
     @Override
-    public void onStateRecorded(ExecutionState state) {
+    public void onStateRecorded(int index, String stepDescription) {
         // Optional: Log when state is recorded
-        System.out.println("State recorded: " + state.getStepDescription());
+        System.out.println("State recorded: " + stepDescription);
     }
     
     @Override
@@ -3,6 +3,12 @@ import util.*;
 import datapath.*;
 import instruction.*; 
 import memory.Memory;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -13,12 +19,14 @@ import java.util.Map;
  */
 public class CPUSimulator {
     // --- Core Components ---
+    private final InstructionConfigLoader configLoader;
     private final InstructionFactory factory;
     private final RegisterFileController registerFile;
     private final ArithmeticLogicUnit alu;
     private final ControlUnit controlUnit;
     private final Memory memory;
     private final List<Instruction> program;
+    private Map<String, Integer> symbolTable = Map.of();
     private int pc; 
 
     // --- CPU Flags ---
@@ -31,6 +39,15 @@ public class CPUSimulator {
     private MicroStepManager microStepManager;
     private boolean branchTaken;
 
+    // --- Functional (Fast-Path) Execution ---
+    private final FunctionalExecutor functionalExecutor;
+    private BlockCache blockCache; // Translated basic blocks of the loaded program
+    private final JitCompiler jitCompiler = new JitCompiler();
+    private int jitThreshold = Constants.DEFAULT_JIT_THRESHOLD;
+    private CallGraphProfiler profiler; // Optional; follows calls on the fast path
+    private boolean quiet; // No console output on load or per instruction, for headless front ends
+    private long executedBeforeFault; // Instructions a fast-path or stepping slice completed before it threw
+
     // --- State for GUI Visualization ---
     private List<String> activeComponents;
     private List<String> activeBuses;
@@ -41,15 +58,38 @@ public class CPUSimulator {
     // --- Execution History System ---
     private ExecutionHistory executionHistory;
     private boolean isRestoringFromHistory = false;
+    // Memory has one dirty set, so it is drained here and the words are handed to both the history and the view
+    private final Map<Long, Long> unrecordedMemoryChanges = new HashMap<>();
+    private Map<Long, Long> unseenMemoryChanges; // Null until a view first calls drainMemoryChanges()
 
     public CPUSimulator(InstructionConfigLoader configLoader) {
+        this(configLoader, new Memory());
+    }
+
+    /**
+     * Creates a simulator with the given data memory, e.g. {@link Memory#paged()} for a full 64-bit address space.
+     * @param configLoader The loaded instruction configuration.
+     * @param memory The data memory.
+     */
+    public CPUSimulator(InstructionConfigLoader configLoader, Memory memory) {
+        this(configLoader, memory, new ArrayList<>());
+        reset();
+    }
+
+    /**
+     * Builds the components around the given memory and program without resetting them.
+     */
+    private CPUSimulator(InstructionConfigLoader configLoader, Memory memory, List<Instruction> program) {
+        this.configLoader = configLoader;
         this.factory = new InstructionFactory(configLoader);
         this.registerFile = new RegisterFileController(new RegisterStorage());
         this.alu = new ArithmeticLogicUnit();
         this.controlUnit = new ControlUnit(configLoader);
-        this.memory = new Memory();
-        this.program = new ArrayList<>();
-        this.microStepManager = new MicroStepManager(registerFile, alu, controlUnit, memory, this::updateFlags);
+        this.memory = memory;
+        this.program = program;
+        this.microStepManager = new MicroStepManager(registerFile, alu, controlUnit, memory, this::updateFlags, this::branchTo);
+        this.functionalExecutor = new FunctionalExecutor(registerFile, alu, memory, this::updateFlags, this::packedFlags);
+        this.blockCache = newBlockCache();
         
         this.activeComponents = new ArrayList<>();
         this.activeBuses = new ArrayList<>();
@@ -58,50 +98,337 @@ public class CPUSimulator {
         // Initialize execution history system
         this.executionHistory = new ExecutionHistory();
         this.isRestoringFromHistory = false;
-        
-        reset();
+    }
+
+    /**
+     * Creates an independent simulator that continues from the current state: same program, registers,
+     * flags and PC, and a {@link Memory#fork() fork} of the data memory. With paged memory the two
+     * simulators share pages until one of them writes, so forking does not copy the memory contents.
+     * The fork starts with an empty execution history.
+     * @return The new simulator.
+     * @throws IllegalStateException if an instruction is part-way through its micro-steps.
+     */
+    public CPUSimulator fork() {
+        if (!microStepManager.isEmpty()) {
+            throw new IllegalStateException("Cannot fork in the middle of an instruction; finish its micro-steps first.");
+        }
+        CPUSimulator copy = new CPUSimulator(configLoader, memory.fork(), new ArrayList<>(program));
+        copy.symbolTable = symbolTable;
+        for (int i = 0; i < 31; i++) {
+            copy.registerFile.writeRegister(i, registerFile.readRegister(i), true);
+        }
+        copy.pc = pc;
+        copy.setFlags(zeroFlag, negativeFlag, overflowFlag, carryFlag);
+        copy.isFinished = isFinished;
+        copy.lastExecutedInstruction = lastExecutedInstruction;
+        copy.jitThreshold = jitThreshold;
+        copy.quiet = quiet;
+        copy.blockCache = copy.newBlockCache();
+        return copy;
     }
 
     public void loadProgram(String[] assemblyLines) {
-        program.clear();
-        
         // Use the new label-aware instruction creation method
-        List<Instruction> instructions = factory.createFromAssemblyLines(assemblyLines);
+        loadProgram(factory.assemble(assemblyLines));
+    }
+
+    /**
+     * Loads an already assembled program, skipping the assembler.
+     * @param assembledProgram The program to load.
+     */
+    public void loadProgram(AssembledProgram assembledProgram) {
+        installProgram(assembledProgram.getInstructions(), assembledProgram.getSymbols(), "Program");
+    }
+
+    /**
+     * Loads a pre-assembled program from a flat binary image of little-endian 32-bit words.
+     * The file is memory-mapped and decoded word by word, so no assembly text is parsed.
+     * @param imageFile The path of the program image.
+     * @throws IOException if the file cannot be read.
+     */
+    public void loadProgramImage(Path imageFile) throws IOException {
+        List<Instruction> instructions;
+        try (FileChannel channel = FileChannel.open(imageFile, StandardOpenOption.READ)) {
+            MappedByteBuffer image = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            instructions = factory.createFromImage(image);
+        }
+        installProgram(instructions, Map.of(), "Program image");
+    }
+
+    /**
+     * Loads a program from an object file written by {@link #saveObjectFile(Path)}.
+     * @param objectFile The path of the object file.
+     * @throws IOException if the file cannot be read or is not a valid object file.
+     */
+    public void loadObjectFile(Path objectFile) throws IOException {
+        AssembledProgram assembledProgram = ObjectFile.read(objectFile, factory);
+        installProgram(assembledProgram.getInstructions(), assembledProgram.getSymbols(), "Object file");
+    }
+
+    /**
+     * Saves the loaded program and its symbol table to an object file.
+     * @param objectFile The path of the object file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void saveObjectFile(Path objectFile) throws IOException {
+        ObjectFile.write(new AssembledProgram(program, symbolTable), objectFile);
+    }
+
+    private void installProgram(List<Instruction> instructions, Map<String, Integer> symbols, String source) {
+        program.clear();
         program.addAll(instructions);
-        
-        System.out.println("Program loaded with " + program.size() + " instruction(s).");
+        symbolTable = symbols;
+        blockCache = newBlockCache();
+
+        if (!quiet) {
+            System.out.println(source + " loaded with " + program.size() + " instruction(s).");
+        }
         reset(); // Reset state after loading
-        
+
         // Record initial state to history
-        recordCurrentStateToHistory("Program loaded - Initial state");
+        recordCurrentStateToHistory(source + " loaded - Initial state");
     }
 
     /**
      * Executes the entire program until completion.
      */
     public void executeProgram() {
+        RunOutcome outcome = executeProgram(RunOptions.builder().setMicroSteps(true).build());
+        if (outcome.getFault() != null) {
+            throw outcome.getFault();
+        }
+    }
+
+    /**
+     * Executes the program until it completes or one of the limits in {@code options} is reached,
+     * printing the final state.
+     * @param options The instruction budget, timeout and cancellation token for the run.
+     * @return Why the run stopped and how many instructions it executed.
+     */
+    public RunOutcome executeProgram(RunOptions options) {
         System.out.println("Program starting.");
-        while (!isFinished) {
-            step();
+        RunOutcome outcome = run(options);
+        if (outcome.isCompleted()) {
+            System.out.println("Program finished.");
+        } else {
+            System.out.println("Program stopped: " + outcome.getMessage());
         }
-        System.out.println("Program finished.");
         printState();
+        return outcome;
+    }
+
+    /**
+     * Runs the program until it completes, faults, or one of the limits in {@code options} is reached.
+     * Instructions are executed in slices of at most {@link RunOptions#getCheckInterval()} instructions;
+     * the timeout and the cancellation token are checked between slices, so a run can overshoot its
+     * timeout by one slice. The instruction budget is exact.
+     * <p>
+     * A fault does not propagate: it is returned in the outcome, with the PC left at the faulting instruction.
+     * @param options The run options.
+     * @return Why the run stopped and how many instructions it executed.
+     */
+    public RunOutcome run(RunOptions options) {
+        long start = System.nanoTime();
+        long deadline = options.getTimeout() != null ? start + options.getTimeout().toNanos() : 0;
+        CancellationToken token = options.getCancellationToken();
+        long maxInstructions = options.getMaxInstructions();
+        long executed = 0;
+        executedBeforeFault = 0;
+        try {
+            while (!isFinished) {
+                if (token != null && token.isCancelled()) {
+                    return outcome(RunOutcome.Status.CANCELLED, executed, start, "Cancelled", null);
+                }
+                if (deadline != 0 && System.nanoTime() - deadline >= 0) {
+                    return outcome(RunOutcome.Status.BUDGET_EXCEEDED, executed, start,
+                            "Timeout of " + options.getTimeout().toMillis() + " ms exceeded", null);
+                }
+                if (executed >= maxInstructions) {
+                    return outcome(RunOutcome.Status.BUDGET_EXCEEDED, executed, start,
+                            "Instruction budget of " + maxInstructions + " exceeded", null);
+                }
+                long slice = Math.min(options.getCheckInterval(), maxInstructions - executed);
+                if (options.isMicroSteps()) {
+                    executed += stepInstructions(slice);
+                } else {
+                    executed += runFast(slice);
+                }
+            }
+        } catch (RuntimeException e) {
+            executed += executedBeforeFault;
+            return outcome(RunOutcome.Status.FAULTED, executed, start, e.getMessage(), e);
+        }
+        return outcome(RunOutcome.Status.COMPLETED, executed, start, "Execution Complete", null);
+    }
+
+    /**
+     * Executes up to {@code maxInstructions} whole instructions through micro-steps, as {@link #step()} does.
+     * @param maxInstructions Upper bound on the number of instructions to execute.
+     * @return The number of instructions executed.
+     */
+    private long stepInstructions(long maxInstructions) {
+        long executed = 0;
+        while (executed < maxInstructions && !isFinished) {
+            executedBeforeFault = executed;
+            step();
+            if (microStepManager.isEmpty() && !isFinished) {
+                executed++;
+            }
+        }
+        return executed;
+    }
+
+    private RunOutcome outcome(RunOutcome.Status status, long executed, long start, String message, RuntimeException fault) {
+        return new RunOutcome(status, executed, Duration.ofNanos(System.nanoTime() - start), pc, message, fault);
+    }
+
+    /**
+     * Executes up to {@code maxInstructions} instructions on the functional fast path.
+     * No micro-steps, visualization state or history are produced, but the resulting
+     * PC, registers, memory and flags are the same as stepping with {@link #step()}.
+     * An instruction that is already part-way through its micro-steps is finished first.
+     * Execution goes a basic block at a time through the translation cache; a block that does not fit in
+     * the remaining budget is run instruction by instruction.
+     * The execution history is cleared, since it no longer describes the current state.
+     * @param maxInstructions Upper bound on the number of instructions to execute.
+     * @return The number of instructions executed.
+     */
+    public long runFast(long maxInstructions) {
+        long executed = 0;
+        executedBeforeFault = 0;
+        if (!microStepManager.isEmpty()) {
+            while (!microStepManager.isEmpty()) {
+                step();
+            }
+            executed++;
+        }
+        // Translated blocks write registers without tracking, so the history cannot continue from here
+        executionHistory.clear();
+
+        int programSize = program.size();
+        int lastPc = -1;
+        while (executed < maxInstructions && pc < programSize) {
+            BasicBlock block = blockCache.enter(pc);
+            if (block.length <= maxInstructions - executed) {
+                lastPc = block.startPc + block.length - 1;
+                try {
+                    pc = functionalExecutor.executeBlock(block);
+                } catch (RuntimeException e) {
+                    pc = block.startPc + functionalExecutor.getFaultIndex();
+                    executedBeforeFault = executed + functionalExecutor.getFaultIndex();
+                    if (profiler != null) {
+                        profiler.account(functionalExecutor.getFaultIndex());
+                    }
+                    throw e;
+                }
+                executed += block.length;
+                if (profiler != null) {
+                    profiler.retire(block.instructions[block.length - 1].getDecoded(), lastPc, block.length, pc);
+                }
+            } else {
+                lastPc = pc;
+                Instruction instruction = program.get(pc);
+                executedBeforeFault = executed;
+                pc = functionalExecutor.execute(instruction, pc);
+                executed++;
+                if (profiler != null) {
+                    profiler.retire(instruction.getDecoded(), lastPc, 1, pc);
+                }
+            }
+        }
+
+        clearDatapathActivity();
+        if (pc >= programSize) {
+            isFinished = true;
+            lastExecutedInstruction = "Execution Complete";
+        } else if (lastPc >= 0) {
+            lastExecutedInstruction = program.get(lastPc).disassemble();
+        }
+        return executed;
+    }
+
+    /**
+     * Sets how many times a basic block must run on the fast path before it is compiled to JVM bytecode.
+     * Takes effect for the next loaded program.
+     * @param threshold The execution count, or 0 to disable the JIT.
+     */
+    public void setJitThreshold(int threshold) {
+        if (threshold < 0) {
+            throw new IllegalArgumentException("JIT threshold cannot be negative: " + threshold);
+        }
+        this.jitThreshold = threshold;
+    }
+
+    /**
+     * Turns off the simulator's console output: the message printed when a program is loaded and the
+     * state printed after each stepped instruction. Headless front ends that run many simulators at once
+     * set this so that they do not all contend on {@code System.out}. Explicit calls to {@link #printState()}
+     * and {@link #executeProgram(RunOptions)} still print.
+     * @param quiet True to turn console output off.
+     */
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    public boolean isQuiet() {
+        return quiet;
+    }
+
+    /**
+     * @return The number of basic blocks of the loaded program compiled to JVM bytecode so far.
+     */
+    public int getCompiledBlockCount() {
+        return blockCache.getCompiledBlockCount();
+    }
+
+    /**
+     * Attaches a call-graph profiler to the fast path, or detaches it with null. The profiler starts
+     * from the current PC and is restarted whenever the simulator is reset or a program is loaded.
+     * Instructions executed with {@link #step()} are not profiled.
+     * @param profiler The profiler, or null.
+     */
+    public void setProfiler(CallGraphProfiler profiler) {
+        this.profiler = profiler;
+        if (profiler != null) {
+            profiler.start(symbolTable, pc);
+        }
+    }
+
+    /**
+     * @return The attached call-graph profiler, or null if profiling is off.
+     */
+    public CallGraphProfiler getProfiler() {
+        return profiler;
+    }
+
+    private BlockCache newBlockCache() {
+        return new BlockCache(program, jitThreshold > 0 ? jitCompiler : null, jitThreshold);
     }
 
     /**
      * Cập nhật các cờ trạng thái (N, Z, C, V) dựa trên kết quả ALU.
      * Cập nhật cả trong RegisterFile và các biến cục bộ để GUI truy cập.
      */
-    private void updateFlags(ArithmeticLogicUnit.ALUResult result) {
-        this.negativeFlag = result.n;
-        this.zeroFlag = result.z;
-        this.carryFlag = result.c;
-        this.overflowFlag = result.v;
+    private void updateFlags(int nzcv) {
+        this.negativeFlag = (nzcv & ArithmeticLogicUnit.FLAG_N) != 0;
+        this.zeroFlag = (nzcv & ArithmeticLogicUnit.FLAG_Z) != 0;
+        this.carryFlag = (nzcv & ArithmeticLogicUnit.FLAG_C) != 0;
+        this.overflowFlag = (nzcv & ArithmeticLogicUnit.FLAG_V) != 0;
 
         // Note: RegisterFileController doesn't have setFlag methods
         // Flags are stored in the CPU simulator instance variables above
     }
 
+    /**
+     * @return The flags packed as {@code ArithmeticLogicUnit.FLAG_*} bits, for B.cond.
+     */
+    private int packedFlags() {
+        return (negativeFlag ? ArithmeticLogicUnit.FLAG_N : 0)
+             | (zeroFlag ? ArithmeticLogicUnit.FLAG_Z : 0)
+             | (carryFlag ? ArithmeticLogicUnit.FLAG_C : 0)
+             | (overflowFlag ? ArithmeticLogicUnit.FLAG_V : 0);
+    }
+
 
     public void printState() {
         System.out.println("CPU State:");
@@ -138,15 +465,9 @@ public class CPUSimulator {
                 
                 // Record a final, single "finished" state to history
                 if (!isRestoringFromHistory) {
-                    // We create a special state with an invalid micro-step index
+                    // We record a special state with an invalid micro-step index
                     // to signal completion.
-                    ExecutionState finalState = new ExecutionState(pc, zeroFlag, negativeFlag, overflowFlag, carryFlag, 
-                                                                "Execution Complete", true, -1, 
-                                                                // Pass current register/memory state
-                                                                registerFile.getAllRegisters(), memory.getAllData(), 
-                                                                activeComponents, activeBuses, busDataValues, 
-                                                                "Program execution completed");
-                    executionHistory.addState(finalState);
+                    recordCurrentStateToHistory(-1, "Program execution completed");
                 }
                 return;
             }
@@ -193,7 +514,9 @@ public class CPUSimulator {
             if (!branchTaken) {
                 pc++;
             }
-            printState();
+            if (!quiet) {
+                printState();
+            }
         }
     }
 
@@ -220,6 +543,10 @@ public class CPUSimulator {
         if (executionHistory != null) {
             executionHistory.clear();
         }
+
+        if (profiler != null) {
+            profiler.start(symbolTable, pc);
+        }
     }
 
     private void clearDatapathActivity() {
@@ -234,40 +561,70 @@ public class CPUSimulator {
      * Records the current execution state to history.
      */
     private void recordCurrentStateToHistory(String stepDescription) {
+        recordCurrentStateToHistory(microStepManager.getCurrentMicroStepIndex(), stepDescription);
+    }
+
+    /**
+     * Records the current execution state to history, passing only the registers and memory words
+     * written since the previous record (everything, if the history is empty).
+     */
+    private void recordCurrentStateToHistory(int microStepIndex, String stepDescription) {
         if (isRestoringFromHistory) return; // Prevent recursive recording
-        
-        // Collect current register values
-        Map<Integer, Long> registerValues = new HashMap<>();
-        for (int i = 0; i < 32; i++) {
-            registerValues.put(i, registerFile.readRegister(i));
+
+        collectMemoryChanges();
+        int dirtyRegisters = registerFile.drainDirtyRegisters();
+        Map<Integer, Long> changedRegisters;
+        Map<Long, Long> changedMemory;
+        if (executionHistory.getHistorySize() == 0) {
+            changedRegisters = registerFile.getAllRegisters();
+            // A file-backed memory is not read here: its history covers only the words written from now on
+            changedMemory = memory.getBackend().startsZeroed() ? memory.getAllData() : new HashMap<>();
+        } else {
+            changedRegisters = new HashMap<>();
+            for (int bits = dirtyRegisters; bits != 0; bits &= bits - 1) {
+                int register = Integer.numberOfTrailingZeros(bits);
+                changedRegisters.put(register, registerFile.readRegister(register));
+            }
+            changedMemory = unrecordedMemoryChanges;
         }
-        
-        // Get current memory state (only modified values for efficiency)
-        Map<Long, Long> memoryValues = memory.getAllData();
-        
-        // Create execution state with proper micro-step context
-        ExecutionState state = new ExecutionState(
-            pc,
-            zeroFlag,
-            negativeFlag,
-            overflowFlag,
-            carryFlag,
-            lastExecutedInstruction,
-            isFinished,
-            microStepManager.getCurrentMicroStepIndex(),
-            registerValues,
-            memoryValues,
-            new ArrayList<>(activeComponents),
-            new ArrayList<>(activeBuses),
-            new HashMap<>(busDataValues),
-            stepDescription
-        );
-        
-        executionHistory.addState(state);
-        
-        // Debug output to help track history recording
-        System.out.println("DEBUG: Recorded state - PC: " + pc + ", MicroStep: " + microStepManager.getCurrentMicroStepIndex() + 
-                          "/" + microStepManager.getTotalMicroSteps() + ", Description: " + stepDescription);
+
+        executionHistory.recordStep(pc, zeroFlag, negativeFlag, overflowFlag, carryFlag,
+                lastExecutedInstruction, isFinished, microStepIndex,
+                changedRegisters, changedMemory,
+                activeComponents, activeBuses, busDataValues, stepDescription);
+        unrecordedMemoryChanges.clear();
+    }
+
+    /**
+     * Moves the words written since the last call out of the memory's dirty set, for the history and the view.
+     */
+    private void collectMemoryChanges() {
+        boolean forHistory = executionHistory.getHistorySize() > 0; // An empty history takes a full snapshot
+        memory.drainDirtyWords((address, value) -> {
+            if (forHistory) {
+                unrecordedMemoryChanges.put(address, value);
+            }
+            if (unseenMemoryChanges != null) {
+                unseenMemoryChanges.put(address, value);
+            }
+        });
+    }
+
+    /**
+     * Visits the memory words changed since the last call, for a view that shows memory.
+     * Use this instead of {@link Memory#drainDirtyWords}, which the simulator drains for the history.
+     * The first call visits every word in use.
+     * @param visitor Receives each changed word's address and current value.
+     */
+    public void drainMemoryChanges(Memory.WordVisitor visitor) {
+        collectMemoryChanges();
+        if (unseenMemoryChanges == null) {
+            unseenMemoryChanges = new HashMap<>();
+            memory.forEachTouchedWord(visitor);
+            return;
+        }
+        unseenMemoryChanges.forEach(visitor::visit);
+        unseenMemoryChanges.clear();
     }
     
     /**
@@ -275,6 +632,10 @@ public class CPUSimulator {
      * @return true if step back was successful, false if already at beginning
      */
     public boolean stepBack() {
+        if (!canRestoreMemory()) {
+            System.out.println(ColoredLog.WARNING + "Step back is not supported with file-backed memory.");
+            return false;
+        }
         ExecutionState previousState = executionHistory.stepBack();
         if (previousState == null) {
             return false;
@@ -305,6 +666,10 @@ public class CPUSimulator {
      * @return true if step forward was successful, false if already at end
      */
     public boolean stepForward() {
+        if (!canRestoreMemory()) {
+            System.out.println(ColoredLog.WARNING + "Step forward is not supported with file-backed memory.");
+            return false;
+        }
         ExecutionState nextState = executionHistory.stepForward();
         if (nextState == null) {
             return false;
@@ -346,8 +711,18 @@ public class CPUSimulator {
             registerFile.writeRegister(entry.getKey(), entry.getValue(), false);
         }
         
-        memory.reset();
-        for (Map.Entry<Long, Long> entry : state.getModifiedMemoryValues().entrySet()) {
+        // Zero the words written since, rather than memory.reset(), which may reload a file instead of zeroing
+        Map<Long, Long> memoryValues = state.getModifiedMemoryValues();
+        List<Long> staleWords = new ArrayList<>();
+        memory.forEachTouchedWord((address, value) -> {
+            if (value != 0 && !memoryValues.containsKey(address)) {
+                staleWords.add(address);
+            }
+        });
+        for (long address : staleWords) {
+            memory.write(address, 0L, 8);
+        }
+        for (Map.Entry<Long, Long> entry : memoryValues.entrySet()) {
             memory.write(entry.getKey(), entry.getValue(), 8);
         }
         
@@ -370,6 +745,7 @@ public class CPUSimulator {
             Instruction currentInstruction = program.get(pc);
             if (currentInstruction != null) {
                 // Generate the full micro-step sequence for this instruction
+                microStepManager.updateCPUState(pc, zeroFlag, negativeFlag, overflowFlag, carryFlag, branchTaken);
                 microStepManager.generateMicroStepsFor(currentInstruction, this.zeroFlag); 
                 
                 // Now, set the manager's index to the one we restored from the state object.
@@ -391,22 +767,30 @@ public class CPUSimulator {
      * Checks if we can step back in execution history.
      */
     public boolean canStepBack() {
-        return executionHistory.canStepBack();
+        return canRestoreMemory() && executionHistory.canStepBack();
     }
     
     /**
      * Checks if we can step forward in execution history.
      */
     public boolean canStepForward() {
-        return executionHistory.canStepForward();
+        return canRestoreMemory() && executionHistory.canStepForward();
+    }
+
+    /**
+     * A file-backed memory holds words the history never saw (and, when persistent, has no earlier
+     * contents to go back to), so past states can only be restored when memory starts out zeroed.
+     */
+    private boolean canRestoreMemory() {
+        return memory.getBackend().startsZeroed();
     }
     
     /**
      * Gets the current step description from history.
      */
     public String getCurrentHistoryStepDescription() {
-        ExecutionState currentState = executionHistory.getCurrentState();
-        return currentState != null ? currentState.getStepDescription() : "No history available";
+        String description = executionHistory.getCurrentStepDescription();
+        return description != null ? description : "No history available";
     }
     
     /**
@@ -449,6 +833,7 @@ public class CPUSimulator {
     public boolean isOverflowFlag() { return overflowFlag; }
     public boolean isCarryFlag() { return carryFlag; }
     public List<Instruction> getProgram() { return program; }
+    public Map<String, Integer> getSymbolTable() { return symbolTable; }
     public RegisterFileController getRegisterFile() { return registerFile; }
     public MicroStepManager getMicroStepManager() { return microStepManager; }
     
@@ -524,24 +909,13 @@ public class CPUSimulator {
     }
 
     /**
-     * Handles branch execution and updates PC
+     * Redirects the PC to a branch target. Called from the branch micro-step action.
      */
-    private void handleBranchExecution(MicroStep currentStep) {
-        if (currentStep.getDescription().contains("Branch (Update PC)")) {
-            // Extract target PC from bus data
-            String pcValue = currentStep.getBusDataValues().get(BusID.MUX_PCSRC_TO_PC.name());
-            if (pcValue != null) {
-                try {
-                    // Convert from address to PC (divide by 4)
-                    int targetAddress = Integer.parseInt(pcValue.replace("0x", ""), 16);
-                    this.pc = targetAddress / 4;
-                    this.branchTaken = true;
-                } catch (NumberFormatException e) {
-                    System.err.println("Error parsing branch target: " + pcValue);
-                }
-            }
-        }
+    private void branchTo(int targetPc) {
+        this.pc = targetPc;
+        this.branchTaken = true;
     }
+
     /**
      * Gets the pipeline stage of the current micro-step.
      * This is used by the GUI to highlight the correct part of the datapath.
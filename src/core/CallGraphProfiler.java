@@ -0,0 +1,204 @@
+package core;
+
+import instruction.DecodedInstruction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Call-graph profiler for the fast path. It follows BL and BR with a shadow call stack and counts,
+ * per function, the instructions executed in the function itself (exclusive) and in the function
+ * together with everything it called (inclusive).
+ * <p>
+ * A function is identified by the entry PC its callers branch to and named after the label at that
+ * PC. BL pushes a frame; a BR to the return address of a frame on the stack (normally {@code RET})
+ * pops it and every frame above it. Any other BR is treated as a jump inside the current function.
+ * Recursive calls are counted once in the inclusive total of the function.
+ * <p>
+ * Attach a profiler with {@link CPUSimulator#setProfiler}. When none is attached {@link CPUSimulator#runFast}
+ * pays a single null check per basic block.
+ */
+public final class CallGraphProfiler {
+
+    /**
+     * The counters of one function.
+     */
+    public static final class FunctionProfile {
+        private final int entryPc;
+        private final String name;
+        private long calls;
+        private long exclusive;
+        private long inclusive;
+        private int activeFrames;     // Frames of this function currently on the stack
+        private long outermostStart;  // Total count when the outermost active frame was entered
+
+        private FunctionProfile(int entryPc, String name) {
+            this.entryPc = entryPc;
+            this.name = name;
+        }
+
+        public int getEntryPc() { return entryPc; }
+        public String getName() { return name; }
+        public long getCalls() { return calls; }
+        public long getExclusive() { return exclusive; }
+        public long getInclusive() { return inclusive; }
+
+        @Override
+        public String toString() {
+            return String.format("FunctionProfile[name=%s, entryPc=%d, calls=%d, inclusive=%d, exclusive=%d]",
+                    name, entryPc, calls, inclusive, exclusive);
+        }
+    }
+
+    private final Map<Integer, FunctionProfile> functions = new HashMap<>();
+    private Map<Integer, String> labels = Map.of(); // Instruction index -> first label there
+    private long total;
+
+    // Shadow call stack
+    private FunctionProfile[] frames = new FunctionProfile[64];
+    private int[] returnPcs = new int[64];
+    private int depth;
+
+    /**
+     * Clears all counters and starts a new call stack whose root frame is the function at {@code pc}.
+     * @param symbols The program's symbol table (label to instruction index), used to name functions.
+     * @param pc The PC execution starts from.
+     */
+    void start(Map<String, Integer> symbols, int pc) {
+        Map<Integer, String> names = new HashMap<>();
+        symbols.forEach((label, index) -> names.putIfAbsent(index, label));
+        labels = names;
+        functions.clear();
+        total = 0;
+        depth = 0;
+        push(function(pc), -1);
+    }
+
+    /**
+     * Accounts for instructions that ended with {@code last} and updates the call stack if it was BL or BR.
+     * @param last The last instruction executed.
+     * @param lastPc Its PC.
+     * @param count The number of instructions executed, including {@code last}.
+     * @param nextPc The PC after {@code last}.
+     */
+    void retire(DecodedInstruction last, int lastPc, int count, int nextPc) {
+        account(count);
+        if (last.operation == DecodedInstruction.Operation.BL) {
+            call(nextPc, lastPc + 1);
+        } else if (last.operation == DecodedInstruction.Operation.BR) {
+            returnTo(nextPc);
+        }
+    }
+
+    /**
+     * Attributes instructions to the function on top of the stack.
+     * @param count The number of instructions.
+     */
+    void account(long count) {
+        total += count;
+        frames[depth - 1].exclusive += count;
+    }
+
+    private void call(int entryPc, int returnPc) {
+        FunctionProfile callee = function(entryPc);
+        callee.calls++;
+        push(callee, returnPc);
+    }
+
+    private void returnTo(int pc) {
+        // The root frame (index 0) is never popped
+        for (int i = depth - 1; i > 0; i--) {
+            if (returnPcs[i] == pc) {
+                while (depth > i) {
+                    FunctionProfile popped = frames[--depth];
+                    frames[depth] = null;
+                    if (--popped.activeFrames == 0) {
+                        popped.inclusive += total - popped.outermostStart;
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    private void push(FunctionProfile function, int returnPc) {
+        if (depth == frames.length) {
+            frames = Arrays.copyOf(frames, depth * 2);
+            returnPcs = Arrays.copyOf(returnPcs, depth * 2);
+        }
+        if (function.activeFrames++ == 0) {
+            function.outermostStart = total;
+        }
+        frames[depth] = function;
+        returnPcs[depth] = returnPc;
+        depth++;
+    }
+
+    private FunctionProfile function(int entryPc) {
+        FunctionProfile function = functions.get(entryPc);
+        if (function == null) {
+            String name = labels.get(entryPc);
+            function = new FunctionProfile(entryPc, name != null ? name : (entryPc == 0 ? "<entry>" : "fn@" + entryPc));
+            functions.put(entryPc, function);
+        }
+        return function;
+    }
+
+    // --- Results ---
+
+    /**
+     * @return The total number of instructions profiled.
+     */
+    public long getTotalInstructions() {
+        return total;
+    }
+
+    /**
+     * @return The current depth of the shadow call stack, including the root frame.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns a snapshot of the per-function counters, sorted by inclusive count (highest first).
+     * Functions still on the call stack include the instructions executed so far.
+     * @return The profiles.
+     */
+    public List<FunctionProfile> getProfiles() {
+        List<FunctionProfile> profiles = new ArrayList<>(functions.size());
+        for (FunctionProfile function : functions.values()) {
+            FunctionProfile snapshot = new FunctionProfile(function.entryPc, function.name);
+            snapshot.calls = function.calls;
+            snapshot.exclusive = function.exclusive;
+            snapshot.inclusive = function.inclusive + (function.activeFrames > 0 ? total - function.outermostStart : 0);
+            profiles.add(snapshot);
+        }
+        profiles.sort((a, b) -> a.inclusive != b.inclusive
+                ? Long.compare(b.inclusive, a.inclusive)
+                : Long.compare(b.exclusive, a.exclusive));
+        return profiles;
+    }
+
+    /**
+     * @return The profiles as a table, one function per line.
+     */
+    public String formatReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("%-24s %10s %14s %7s %14s %7s%n", "Function", "Calls", "Inclusive", "%", "Exclusive", "%"));
+        for (FunctionProfile profile : getProfiles()) {
+            report.append(String.format("%-24s %10d %14d %6.1f%% %14d %6.1f%%%n",
+                    profile.name, profile.calls,
+                    profile.inclusive, percent(profile.inclusive),
+                    profile.exclusive, percent(profile.exclusive)));
+        }
+        report.append(String.format("Total: %d instruction(s)%n", total));
+        return report.toString();
+    }
+
+    private double percent(long count) {
+        return total == 0 ? 0.0 : 100.0 * count / total;
+    }
+}
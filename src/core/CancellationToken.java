@@ -0,0 +1,24 @@
+package core;
+
+/**
+ * A flag for cancelling a run cooperatively. Any thread may call {@link #cancel()}; the simulator
+ * checks the token between slices of execution (see {@link RunOptions.Builder#setCheckInterval}),
+ * so a run stops within one slice of the request.
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Requests cancellation. Has no effect if already cancelled.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return True once {@link #cancel()} has been called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
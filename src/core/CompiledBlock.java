@@ -0,0 +1,26 @@
+package core;
+
+import instruction.Instruction;
+import memory.Memory;
+
+/**
+ * A basic block compiled to JVM bytecode by {@link JitCompiler}. Generated subclasses keep the
+ * block's registers in local variables and write them back to the register array before any
+ * instruction that may throw and before returning.
+ */
+abstract class CompiledBlock {
+    /**
+     * Index within the block of the instruction that may throw next, for fault reporting.
+     */
+    int progress;
+
+    /**
+     * Runs the block.
+     * @param registers The register array ({@link RegisterStorage#array()}).
+     * @param memory The data memory.
+     * @param executor The executor, for instructions the compiler does not inline.
+     * @param instructions The block's instructions.
+     * @return The PC of the next instruction to execute.
+     */
+    abstract int run(long[] registers, Memory memory, FunctionalExecutor executor, Instruction[] instructions);
+}
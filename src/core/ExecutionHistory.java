@@ -1,15 +1,117 @@
 package core;
 
 import java.util.*;
+import java.util.function.UnaryOperator;
 
 /**
  * Manages the execution history for step-back functionality.
  * Maintains a stack of execution states that can be navigated forward and backward.
+ * <p>
+ * States are stored delta-encoded: every {@code keyframeInterval}-th entry is a full keyframe, and the
+ * entries in between only keep the registers and memory words that changed since the previous entry,
+ * plus the (small) PC, flag and visualization fields. A full {@link ExecutionState} is rebuilt on demand
+ * by replaying deltas from the nearest keyframe, so far more states fit in memory than with snapshots.
+ * <p>
+ * The simulator records through {@link #recordStep}, passing only the registers and words it wrote, so
+ * recording costs the size of the change rather than the size of the machine state. Visualization lists,
+ * maps and descriptions repeat every time the same instruction runs, so entries share one copy of each.
  */
 public class ExecutionHistory {
-    private final List<ExecutionState> history;
+    public static final int DEFAULT_MAX_HISTORY_SIZE = 100_000;
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 128;
+    private static final int MAX_INTERNED = 4096;
+
+    private static final int[] NO_REGISTERS = new int[0];
+    private static final long[] NO_VALUES = new long[0];
+
+    /**
+     * One recorded state: either a full keyframe or a delta against the previous entry.
+     */
+    private static final class Entry {
+        // Full state, for keyframes only
+        final ExecutionState keyframe;
+
+        // Per-step fields, kept for every entry (the lists, map and strings are shared between entries)
+        final int programCounter;
+        final boolean zeroFlag;
+        final boolean negativeFlag;
+        final boolean overflowFlag;
+        final boolean carryFlag;
+        final String lastExecutedInstruction;
+        final boolean isFinished;
+        final int currentMicroStepIndex;
+        final List<String> activeComponents;
+        final List<String> activeBuses;
+        final Map<String, String> busDataValues;
+        final String stepDescription;
+        final long timestamp;
+
+        // Changes since the previous entry, for deltas only (a memory value of 0 removes the word)
+        final int[] changedRegisters;
+        final long[] registerValues;
+        final long[] changedAddresses;
+        final long[] memoryValues;
+
+        Entry(ExecutionState keyframe, int programCounter, boolean zeroFlag, boolean negativeFlag,
+              boolean overflowFlag, boolean carryFlag, String lastExecutedInstruction,
+              boolean isFinished, int currentMicroStepIndex,
+              List<String> activeComponents, List<String> activeBuses, Map<String, String> busDataValues,
+              String stepDescription, long timestamp,
+              int[] changedRegisters, long[] registerValues, long[] changedAddresses, long[] memoryValues) {
+            this.keyframe = keyframe;
+            this.programCounter = programCounter;
+            this.zeroFlag = zeroFlag;
+            this.negativeFlag = negativeFlag;
+            this.overflowFlag = overflowFlag;
+            this.carryFlag = carryFlag;
+            this.lastExecutedInstruction = lastExecutedInstruction;
+            this.isFinished = isFinished;
+            this.currentMicroStepIndex = currentMicroStepIndex;
+            this.activeComponents = activeComponents;
+            this.activeBuses = activeBuses;
+            this.busDataValues = busDataValues;
+            this.stepDescription = stepDescription;
+            this.timestamp = timestamp;
+            this.changedRegisters = changedRegisters;
+            this.registerValues = registerValues;
+            this.changedAddresses = changedAddresses;
+            this.memoryValues = memoryValues;
+        }
+
+        /**
+         * @return This entry as a keyframe holding the given full state.
+         */
+        Entry toKeyframe(ExecutionState state) {
+            return new Entry(state, programCounter, zeroFlag, negativeFlag, overflowFlag, carryFlag,
+                    lastExecutedInstruction, isFinished, currentMicroStepIndex,
+                    activeComponents, activeBuses, busDataValues, stepDescription, timestamp,
+                    null, null, null, null);
+        }
+
+        boolean isKeyframe() {
+            return keyframe != null;
+        }
+    }
+
+    // Ring buffer of entries, oldest at head
+    private Entry[] entries;
+    private int head;
+    private int size;
     private int currentIndex;
     private final int maxHistorySize;
+    private final int keyframeInterval;
+
+    // Registers and memory of the newest entry, which new entries are recorded against
+    private final Map<Integer, Long> tipRegisters = new HashMap<>();
+    private final Map<Long, Long> tipMemory = new HashMap<>();
+    private int tipStepsSinceKeyframe;
+
+    // Most recently rebuilt state, so sequential navigation does not replay deltas
+    private int cachedIndex = -1;
+    private ExecutionState cachedState;
+
+    // Shared copies of the visualization fields and descriptions (cleared when it grows too large)
+    private final Map<Object, Object> interned = new HashMap<>();
     
     // Statistics
     private int totalSteps;
@@ -19,13 +121,23 @@ public class ExecutionHistory {
     private final List<ExecutionHistoryListener> listeners;
     
     public ExecutionHistory() {
-        this(1000); // Default max history size
+        this(DEFAULT_MAX_HISTORY_SIZE);
     }
     
     public ExecutionHistory(int maxHistorySize) {
-        this.history = new ArrayList<>();
+        this(maxHistorySize, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    public ExecutionHistory(int maxHistorySize, int keyframeInterval) {
+        if (maxHistorySize < 1 || keyframeInterval < 1) {
+            throw new IllegalArgumentException("History size and keyframe interval must be positive");
+        }
+        this.entries = new Entry[Math.min(maxHistorySize, 64)];
+        this.head = 0;
+        this.size = 0;
         this.currentIndex = -1;
         this.maxHistorySize = maxHistorySize;
+        this.keyframeInterval = keyframeInterval;
         this.totalSteps = 0;
         this.totalStepBacks = 0;
         this.listeners = new ArrayList<>();
@@ -36,25 +148,49 @@ public class ExecutionHistory {
      * This will remove any "future" states if we're not at the end of history.
      */
     public void addState(ExecutionState state) {
-        // Remove any states after current index (when stepping back then forward)
-        if (currentIndex < history.size() - 1) {
-            history.subList(currentIndex + 1, history.size()).clear();
-        }
-        
-        // Add new state
-        history.add(state);
-        currentIndex++;
-        totalSteps++;
-        
-        // Maintain max history size
-        if (history.size() > maxHistorySize) {
-            history.remove(0);
-            currentIndex--;
+        truncateFuture();
+
+        // Words of the previous state that are gone from this one must be cleared
+        Map<Long, Long> memory = state.memoryValuesView();
+        Map<Long, Long> changedMemory = new HashMap<>(memory);
+        for (Long address : tipMemory.keySet()) {
+            if (!memory.containsKey(address)) {
+                changedMemory.put(address, 0L);
+            }
         }
+        record(state.getProgramCounter(), state.isZeroFlag(), state.isNegativeFlag(),
+                state.isOverflowFlag(), state.isCarryFlag(), state.getLastExecutedInstruction(),
+                state.isFinished(), state.getCurrentMicroStepIndex(),
+                state.registerValuesView(), changedMemory,
+                state.activeComponentsView(), state.activeBusesView(), state.busDataValuesView(),
+                state.getStepDescription(), state.getTimestamp());
+        cachedIndex = currentIndex;
+        cachedState = state;
+        notifyRecorded();
+    }
         
-        // Notify listeners
-        notifyStateRecorded(state);
-        notifyHistoryStateChanged();
+    /**
+     * Records a new state given only what changed since the newest recorded state, without building
+     * an {@link ExecutionState}. Like {@link #addState}, this removes any "future" states first, in which
+     * case the changes are taken relative to the current state.
+     * <p>
+     * Registers and words that are passed but did not actually change are ignored, so passing a superset
+     * (e.g. everything written since the last call) is fine. When the history is empty the complete
+     * register file and memory contents must be passed.
+     * @param changedRegisters Register number to new value.
+     * @param changedMemory Byte address to new 64-bit word; 0 clears the word.
+     */
+    void recordStep(int programCounter, boolean zeroFlag, boolean negativeFlag,
+                    boolean overflowFlag, boolean carryFlag, String lastExecutedInstruction,
+                    boolean isFinished, int currentMicroStepIndex,
+                    Map<Integer, Long> changedRegisters, Map<Long, Long> changedMemory,
+                    List<String> activeComponents, List<String> activeBuses,
+                    Map<String, String> busDataValues, String stepDescription) {
+        truncateFuture();
+        record(programCounter, zeroFlag, negativeFlag, overflowFlag, carryFlag, lastExecutedInstruction,
+                isFinished, currentMicroStepIndex, changedRegisters, changedMemory,
+                activeComponents, activeBuses, busDataValues, stepDescription, System.currentTimeMillis());
+        notifyRecorded();
     }
     
     /**
@@ -101,12 +237,23 @@ public class ExecutionHistory {
      * @return The current execution state, or null if history is empty.
      */
     public ExecutionState getCurrentState() {
-        if (history.isEmpty() || currentIndex < 0 || currentIndex >= history.size()) {
+        if (size == 0 || currentIndex < 0 || currentIndex >= size) {
             return null;
         }
-        return history.get(currentIndex);
+        return getStateAt(currentIndex);
     }
     
+    /**
+     * Gets the step description of the current state without rebuilding the state.
+     * @return The description, or null if history is empty.
+     */
+    public String getCurrentStepDescription() {
+        if (size == 0 || currentIndex < 0 || currentIndex >= size) {
+            return null;
+        }
+        return entry(currentIndex).stepDescription;
+    }
+
     /**
      * Checks if we can step back.
      */
@@ -118,14 +265,14 @@ public class ExecutionHistory {
      * Checks if we can step forward.
      */
     public boolean canStepForward() {
-        return currentIndex < history.size() - 1;
+        return currentIndex < size - 1;
     }
     
     /**
      * Gets the total number of states in history.
      */
     public int getHistorySize() {
-        return history.size();
+        return size;
     }
     
     /**
@@ -139,8 +286,15 @@ public class ExecutionHistory {
      * Clears all history.
      */
     public void clear() {
-        history.clear();
+        Arrays.fill(entries, null);
+        head = 0;
+        size = 0;
         currentIndex = -1;
+        tipRegisters.clear();
+        tipMemory.clear();
+        tipStepsSinceKeyframe = 0;
+        dropCache();
+        interned.clear();
         totalSteps = 0;
         totalStepBacks = 0;
         
@@ -153,9 +307,9 @@ public class ExecutionHistory {
      * Gets a list of all step descriptions in chronological order.
      */
     public List<String> getStepDescriptions() {
-        List<String> descriptions = new ArrayList<>();
-        for (ExecutionState state : history) {
-            descriptions.add(state.getStepDescription());
+        List<String> descriptions = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            descriptions.add(entry(i).stepDescription);
         }
         return descriptions;
     }
@@ -165,24 +319,62 @@ public class ExecutionHistory {
      */
     public String getStatistics() {
         return String.format("Total Steps: %d, Step Backs: %d, Current Position: %d/%d",
-                           totalSteps, totalStepBacks, currentIndex + 1, history.size());
+                           totalSteps, totalStepBacks, currentIndex + 1, size);
     }
     
     /**
-     * Gets the state at a specific index.
+     * Gets the state at a specific index, rebuilding it from the nearest keyframe if needed.
      */
     public ExecutionState getStateAt(int index) {
-        if (index < 0 || index >= history.size()) {
+        if (index < 0 || index >= size) {
             return null;
         }
-        return history.get(index);
+        if (index == cachedIndex) {
+            return cachedState;
+        }
+        ExecutionState state = rebuildAt(index);
+        cachedIndex = index;
+        cachedState = state;
+        return state;
+    }
+
+    /**
+     * Rebuilds the state at an index without touching the cache.
+     */
+    private ExecutionState rebuildAt(int index) {
+        Entry target = entry(index);
+        if (target.isKeyframe()) {
+            return target.keyframe;
+        }
+        if (index == size - 1) {
+            return rebuild(target, tipRegisters, tipMemory);
+        }
+
+        // Start from the cached state when it lies between the keyframe and the target
+        int keyframeIndex = index - stepsSinceKeyframe(index);
+        ExecutionState base;
+        int baseIndex;
+        if (cachedIndex >= keyframeIndex && cachedIndex < index) {
+            base = cachedState;
+            baseIndex = cachedIndex;
+        } else {
+            base = entry(keyframeIndex).keyframe;
+            baseIndex = keyframeIndex;
+        }
+
+        Map<Integer, Long> registers = new HashMap<>(base.registerValuesView());
+        Map<Long, Long> memory = new HashMap<>(base.memoryValuesView());
+        for (int i = baseIndex + 1; i <= index; i++) {
+            applyDelta(entry(i), registers, memory);
+        }
+        return rebuild(target, registers, memory);
     }
     
     /**
      * Jumps to a specific state in the history.
      */
     public ExecutionState jumpToState(int index) {
-        if (index < 0 || index >= history.size()) {
+        if (index < 0 || index >= size) {
             return null;
         }
         currentIndex = index;
@@ -193,10 +385,14 @@ public class ExecutionHistory {
      * Gets a range of states for debugging or analysis.
      */
     public List<ExecutionState> getStatesInRange(int startIndex, int endIndex) {
-        if (startIndex < 0 || endIndex >= history.size() || startIndex > endIndex) {
+        if (startIndex < 0 || endIndex >= size || startIndex > endIndex) {
             return new ArrayList<>();
         }
-        return new ArrayList<>(history.subList(startIndex, endIndex + 1));
+        List<ExecutionState> states = new ArrayList<>(endIndex - startIndex + 1);
+        for (int i = startIndex; i <= endIndex; i++) {
+            states.add(getStateAt(i));
+        }
+        return states;
     }
     
     /**
@@ -204,8 +400,9 @@ public class ExecutionHistory {
      */
     public List<Integer> findStatesByDescription(String pattern) {
         List<Integer> indices = new ArrayList<>();
-        for (int i = 0; i < history.size(); i++) {
-            if (history.get(i).getStepDescription().toLowerCase().contains(pattern.toLowerCase())) {
+        String lowerPattern = pattern.toLowerCase();
+        for (int i = 0; i < size; i++) {
+            if (entry(i).stepDescription.toLowerCase().contains(lowerPattern)) {
                 indices.add(i);
             }
         }
@@ -215,7 +412,210 @@ public class ExecutionHistory {
     @Override
     public String toString() {
         return String.format("ExecutionHistory[Size=%d, Current=%d, CanStepBack=%b, CanStepForward=%b]",
-                           history.size(), currentIndex, canStepBack(), canStepForward());
+                           size, currentIndex, canStepBack(), canStepForward());
+    }
+
+    // --- Delta Encoding ---
+
+    /**
+     * Removes the states after the current one and moves the tip back to the current state.
+     */
+    private void truncateFuture() {
+        if (currentIndex >= size - 1) {
+            return;
+        }
+        ExecutionState current = getStateAt(currentIndex);
+        for (int i = currentIndex + 1; i < size; i++) {
+            entries[slot(i)] = null;
+        }
+        size = currentIndex + 1;
+        if (cachedIndex > currentIndex) {
+            dropCache();
+        }
+        tipRegisters.clear();
+        tipRegisters.putAll(current.registerValuesView());
+        tipMemory.clear();
+        tipMemory.putAll(current.memoryValuesView());
+        tipStepsSinceKeyframe = stepsSinceKeyframe(currentIndex);
+    }
+
+    /**
+     * Applies the changes to the tip and appends the new entry, as a keyframe when one is due.
+     */
+    private void record(int programCounter, boolean zeroFlag, boolean negativeFlag,
+                        boolean overflowFlag, boolean carryFlag, String lastExecutedInstruction,
+                        boolean isFinished, int currentMicroStepIndex,
+                        Map<Integer, Long> changedRegisters, Map<Long, Long> changedMemory,
+                        List<String> activeComponents, List<String> activeBuses,
+                        Map<String, String> busDataValues, String stepDescription, long timestamp) {
+        boolean keyframe = size == 0 || tipStepsSinceKeyframe + 1 >= keyframeInterval;
+
+        // Keep only what really changed
+        int[] registers = new int[changedRegisters.size()];
+        long[] registerValues = new long[registers.length];
+        int registerCount = 0;
+        for (Map.Entry<Integer, Long> register : changedRegisters.entrySet()) {
+            Long previous = tipRegisters.put(register.getKey(), register.getValue());
+            if (!register.getValue().equals(previous)) {
+                registers[registerCount] = register.getKey();
+                registerValues[registerCount] = register.getValue();
+                registerCount++;
+            }
+        }
+        long[] addresses = new long[changedMemory.size()];
+        long[] memoryValues = new long[addresses.length];
+        int memoryCount = 0;
+        for (Map.Entry<Long, Long> word : changedMemory.entrySet()) {
+            long value = word.getValue();
+            Long previous = value == 0L ? tipMemory.remove(word.getKey()) : tipMemory.put(word.getKey(), value);
+            if (previous == null ? value != 0L : previous != value) {
+                addresses[memoryCount] = word.getKey();
+                memoryValues[memoryCount] = value;
+                memoryCount++;
+            }
+        }
+
+        Entry entry = new Entry(null, programCounter, zeroFlag, negativeFlag, overflowFlag, carryFlag,
+                intern(lastExecutedInstruction, UnaryOperator.identity()),
+                isFinished, currentMicroStepIndex,
+                intern(activeComponents, list -> Collections.unmodifiableList(new ArrayList<>(list))),
+                intern(activeBuses, list -> Collections.unmodifiableList(new ArrayList<>(list))),
+                intern(busDataValues, map -> Collections.unmodifiableMap(new HashMap<>(map))),
+                intern(stepDescription, UnaryOperator.identity()), timestamp,
+                registerCount == 0 ? NO_REGISTERS : Arrays.copyOf(registers, registerCount),
+                registerCount == 0 ? NO_VALUES : Arrays.copyOf(registerValues, registerCount),
+                memoryCount == 0 ? NO_VALUES : Arrays.copyOf(addresses, memoryCount),
+                memoryCount == 0 ? NO_VALUES : Arrays.copyOf(memoryValues, memoryCount));
+        if (keyframe) {
+            entry = entry.toKeyframe(rebuild(entry, tipRegisters, tipMemory));
+            tipStepsSinceKeyframe = 0;
+        } else {
+            tipStepsSinceKeyframe++;
+        }
+        append(entry);
+        currentIndex = size - 1;
+        totalSteps++;
+
+        // Maintain max history size
+        if (size > maxHistorySize) {
+            removeOldest();
+        }
+    }
+
+    /**
+     * Returns the shared copy of a value, storing a copy made by {@code copy} the first time it is seen.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T intern(T value, UnaryOperator<T> copy) {
+        if (value == null) {
+            return null;
+        }
+        T shared = (T) interned.get(value);
+        if (shared == null) {
+            if (interned.size() >= MAX_INTERNED) {
+                interned.clear();
+            }
+            shared = copy.apply(value);
+            interned.put(shared, shared);
+        }
+        return shared;
+    }
+
+    private static void applyDelta(Entry entry, Map<Integer, Long> registers, Map<Long, Long> memory) {
+        if (entry.isKeyframe()) {
+            registers.clear();
+            registers.putAll(entry.keyframe.registerValuesView());
+            memory.clear();
+            memory.putAll(entry.keyframe.memoryValuesView());
+            return;
+        }
+        for (int i = 0; i < entry.changedRegisters.length; i++) {
+            registers.put(entry.changedRegisters[i], entry.registerValues[i]);
+        }
+        for (int i = 0; i < entry.changedAddresses.length; i++) {
+            if (entry.memoryValues[i] == 0L) {
+                memory.remove(entry.changedAddresses[i]);
+            } else {
+                memory.put(entry.changedAddresses[i], entry.memoryValues[i]);
+            }
+        }
+    }
+
+    private static ExecutionState rebuild(Entry entry, Map<Integer, Long> registers, Map<Long, Long> memory) {
+        return new ExecutionState(entry.programCounter, entry.zeroFlag, entry.negativeFlag,
+                entry.overflowFlag, entry.carryFlag, entry.lastExecutedInstruction,
+                entry.isFinished, entry.currentMicroStepIndex, registers, memory,
+                entry.activeComponents, entry.activeBuses, entry.busDataValues,
+                entry.stepDescription, entry.timestamp);
+    }
+
+    /**
+     * Counts the delta entries between the given index and the keyframe at or before it.
+     */
+    private int stepsSinceKeyframe(int index) {
+        int steps = 0;
+        while (!entry(index - steps).isKeyframe()) {
+            steps++;
+        }
+        return steps;
+    }
+
+    // --- Ring Buffer ---
+
+    private int slot(int index) {
+        return (head + index) % entries.length;
+    }
+
+    private Entry entry(int index) {
+        return entries[slot(index)];
+    }
+
+    private void append(Entry entry) {
+        if (size == entries.length) {
+            // Grow (bounded by maxHistorySize + 1, the extra slot absorbs the entry about to be evicted)
+            Entry[] grown = new Entry[(int) Math.min((long) entries.length * 2, (long) maxHistorySize + 1)];
+            for (int i = 0; i < size; i++) {
+                grown[i] = entry(i);
+            }
+            entries = grown;
+            head = 0;
+        }
+        entries[slot(size)] = entry;
+        size++;
+    }
+
+    /**
+     * Evicts the oldest entries up to the next keyframe, so nothing has to be rebuilt into a keyframe.
+     * When that would drop more than half the history (small limits), the oldest entry is dropped alone and
+     * the next one promoted to a keyframe instead.
+     */
+    private void removeOldest() {
+        int count = 1;
+        while (count < size && !entry(count).isKeyframe()) {
+            count++;
+        }
+        if (count == size || count > maxHistorySize / 2) {
+            entries[slot(1)] = entry(1).toKeyframe(cachedIndex == 1 ? cachedState : rebuildAt(1));
+            count = 1;
+        }
+        for (int i = 0; i < count; i++) {
+            entries[slot(i)] = null;
+        }
+        head = (head + count) % entries.length;
+        size -= count;
+        currentIndex -= count;
+        tipStepsSinceKeyframe = stepsSinceKeyframe(size - 1);
+        if (cachedIndex >= 0) {
+            cachedIndex -= count;
+            if (cachedIndex < 0) {
+                dropCache();
+            }
+        }
+    }
+
+    private void dropCache() {
+        cachedIndex = -1;
+        cachedState = null;
     }
     
     // --- Listener Management ---
@@ -243,7 +643,7 @@ public class ExecutionHistory {
         for (ExecutionHistoryListener listener : listeners) {
             try {
                 listener.onHistoryStateChanged(canStepBack(), canStepForward(), 
-                                             currentIndex, history.size());
+                                             currentIndex, size);
             } catch (Exception e) {
                 System.err.println("Error notifying history listener: " + e.getMessage());
             }
@@ -264,16 +664,18 @@ public class ExecutionHistory {
     }
     
     /**
-     * Notifies listeners when a state is recorded.
+     * Notifies listeners that the newest entry was recorded.
      */
-    private void notifyStateRecorded(ExecutionState state) {
+    private void notifyRecorded() {
+        String stepDescription = entry(currentIndex).stepDescription;
         for (ExecutionHistoryListener listener : listeners) {
             try {
-                listener.onStateRecorded(state);
+                listener.onStateRecorded(currentIndex, stepDescription);
             } catch (Exception e) {
                 System.err.println("Error notifying history listener: " + e.getMessage());
             }
         }
+        notifyHistoryStateChanged();
     }
     
     /**
@@ -24,10 +24,12 @@ public interface ExecutionHistoryListener {
     void onStateRestored(ExecutionState state);
     
     /**
-     * Called when a new execution state is recorded.
-     * @param state the newly recorded execution state
+     * Called when a new execution state is recorded. The state itself is not built for this call;
+     * use {@link ExecutionHistory#getStateAt(int)} if it is needed.
+     * @param index the history index of the new state
+     * @param stepDescription the description of the new state
      */
-    void onStateRecorded(ExecutionState state);
+    void onStateRecorded(int index, String stepDescription);
     
     /**
      * Called when the execution history is cleared.
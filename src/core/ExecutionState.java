@@ -41,6 +41,21 @@ public class ExecutionState {
                          Map<Integer, Long> registerValues, Map<Long, Long> modifiedMemoryValues,
                          List<String> activeComponents, List<String> activeBuses,
                          Map<String, String> busDataValues, String stepDescription) {
+        this(programCounter, zeroFlag, negativeFlag, overflowFlag, carryFlag, lastExecutedInstruction,
+             isFinished, currentMicroStepIndex, registerValues, modifiedMemoryValues,
+             activeComponents, activeBuses, busDataValues, stepDescription, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates an execution state snapshot with an explicit timestamp.
+     * Used when {@link ExecutionHistory} rebuilds a state it recorded earlier.
+     */
+    ExecutionState(int programCounter, boolean zeroFlag, boolean negativeFlag,
+                   boolean overflowFlag, boolean carryFlag, String lastExecutedInstruction,
+                   boolean isFinished, int currentMicroStepIndex,
+                   Map<Integer, Long> registerValues, Map<Long, Long> modifiedMemoryValues,
+                   List<String> activeComponents, List<String> activeBuses,
+                   Map<String, String> busDataValues, String stepDescription, long timestamp) {
         this.programCounter = programCounter;
         this.zeroFlag = zeroFlag;
         this.negativeFlag = negativeFlag;
@@ -55,7 +70,7 @@ public class ExecutionState {
         this.activeBuses = new ArrayList<>(activeBuses);
         this.busDataValues = new HashMap<>(busDataValues);
         this.stepDescription = stepDescription;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
     }
     
     // --- Getters ---
@@ -74,6 +89,13 @@ public class ExecutionState {
     public Map<String, String> getBusDataValues() { return new HashMap<>(busDataValues); }
     public String getStepDescription() { return stepDescription; }
     public long getTimestamp() { return timestamp; }
+
+    // --- Read-only views for ExecutionHistory (no copy; callers must not modify) ---
+    Map<Integer, Long> registerValuesView() { return registerValues; }
+    Map<Long, Long> memoryValuesView() { return modifiedMemoryValues; }
+    List<String> activeComponentsView() { return activeComponents; }
+    List<String> activeBusesView() { return activeBuses; }
+    Map<String, String> busDataValuesView() { return busDataValues; }
     
     /**
      * Creates a deep copy of this execution state.
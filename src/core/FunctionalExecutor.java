@@ -0,0 +1,238 @@
+package core;
+
+import exceptions.InvalidInstructionException;
+import instruction.*;
+import memory.Memory;
+import util.Constants;
+
+/**
+ * Functional (fast-path) executor for the LEGv8 CPU simulator.
+ * Executes instructions directly against the register file, memory and ALU without
+ * building micro-steps, visualization data or history. The resulting architectural
+ * state matches the one produced by {@link MicroStepManager}.
+ */
+public class FunctionalExecutor {
+
+    // Dependencies
+    private final RegisterFileController registerFile;
+    private final ArithmeticLogicUnit alu;
+    private final Memory memory;
+    private final MicroStepManager.FlagUpdater flagUpdater;
+    private final MicroStepManager.FlagReader flagReader;
+
+    private int faultIndex;
+
+    public FunctionalExecutor(RegisterFileController registerFile, ArithmeticLogicUnit alu, Memory memory,
+                              MicroStepManager.FlagUpdater flagUpdater, MicroStepManager.FlagReader flagReader) {
+        this.registerFile = registerFile;
+        this.alu = alu;
+        this.memory = memory;
+        this.flagUpdater = flagUpdater;
+        this.flagReader = flagReader;
+    }
+
+    /**
+     * Executes a single instruction.
+     * @param instruction The instruction to execute.
+     * @param pc The index of the instruction in the program.
+     * @return The PC of the next instruction to execute.
+     */
+    public int execute(Instruction instruction, int pc) {
+        DecodedInstruction d = instruction.getDecoded();
+
+        switch (d.operation) {
+            case ADDI:
+            case SUBI:
+                executeALU(d, registerFile.readRegister(d.rn), d.immediate);
+                break;
+            case LSL:
+            case LSR:
+            case ASR:
+                executeALU(d, registerFile.readRegister(d.rn), d.shamt);
+                break;
+            case ADD: case SUB: case AND: case ORR: case EOR:
+            case MUL: case SMULH: case UMULH:
+            case SDIV: case UDIV:
+            case CMP:
+                executeALU(d, registerFile.readRegister(d.rn), registerFile.readRegister(d.rm));
+                break;
+            case LDUR: {
+                long address = memory.checkRange(registerFile.readRegister(d.rn) + d.immediate, d.accessSize);
+                long value = d.signExtendLoad ? memory.readSigned(address, d.accessSize) : memory.read(address, d.accessSize);
+                registerFile.writeRegister(d.rd, value, true);
+                break;
+            }
+            case STUR: {
+                long address = memory.checkRange(registerFile.readRegister(d.rn) + d.immediate, d.accessSize);
+                memory.write(address, registerFile.readRegister(d.rd), d.accessSize);
+                break;
+            }
+            case MOVZ:
+            case MOVK:
+                registerFile.writeRegister(d.rd, d.immediate << (d.shift * 16), true);
+                break;
+            case B:
+                return d.target;
+            case BL:
+                registerFile.writeRegister(Constants.LINK_REGISTER, pc + 1, true);
+                return d.target;
+            case BR:
+                return branchRegisterTarget(registerFile.readRegister(d.rn));
+            case CBZ:
+                return zeroBranchTarget(registerFile.readRegister(d.rd), d.target, pc + 1);
+            case CBNZ:
+                return zeroBranchTarget(registerFile.readRegister(d.rd), pc + 1, d.target);
+            case B_COND:
+                return conditionalBranchTarget(d.rd, d.target, pc + 1);
+            default:
+                // Unsupported instruction types are a no-op, as in the micro-step path
+                break;
+        }
+        return pc + 1;
+    }
+
+    /**
+     * Executes a translated basic block from its first instruction to its last.
+     * If an instruction throws, the instructions before it have taken effect and
+     * {@link #getFaultIndex()} gives its position in the block.
+     * @param block The block to execute.
+     * @return The PC of the next instruction to execute.
+     */
+    int executeBlock(BasicBlock block) {
+        final long[] x = registerFile.registerArray();
+        CompiledBlock compiled = block.compiled;
+        if (compiled != null) {
+            try {
+                return compiled.run(x, memory, this, block.instructions);
+            } catch (RuntimeException e) {
+                faultIndex = compiled.progress;
+                throw e;
+            }
+        }
+
+        final int[] ops = block.ops;
+        final int[] rd = block.rd;
+        final int[] rn = block.rn;
+        final int[] rm = block.rm;
+        final long[] imm = block.imm;
+        int i = 0;
+        try {
+            for (; i < ops.length; i++) {
+                switch (ops[i]) {
+                    case BasicBlock.OP_ADD:   x[rd[i]] = x[rn[i]] + x[rm[i]]; break;
+                    case BasicBlock.OP_SUB:   x[rd[i]] = x[rn[i]] - x[rm[i]]; break;
+                    case BasicBlock.OP_AND:   x[rd[i]] = x[rn[i]] & x[rm[i]]; break;
+                    case BasicBlock.OP_ORR:   x[rd[i]] = x[rn[i]] | x[rm[i]]; break;
+                    case BasicBlock.OP_EOR:   x[rd[i]] = x[rn[i]] ^ x[rm[i]]; break;
+                    case BasicBlock.OP_MUL:   x[rd[i]] = x[rn[i]] * x[rm[i]]; break;
+                    case BasicBlock.OP_SMULH: x[rd[i]] = Math.multiplyHigh(x[rn[i]], x[rm[i]]); break;
+                    case BasicBlock.OP_SDIV:  x[rd[i]] = divide(x[rn[i]], x[rm[i]], false); break;
+                    case BasicBlock.OP_UDIV:  x[rd[i]] = divide(x[rn[i]], x[rm[i]], true); break;
+                    case BasicBlock.OP_LSL:   x[rd[i]] = x[rn[i]] << imm[i]; break;
+                    case BasicBlock.OP_LSR:   x[rd[i]] = x[rn[i]] >>> imm[i]; break;
+                    case BasicBlock.OP_ASR:   x[rd[i]] = x[rn[i]] >> imm[i]; break;
+                    case BasicBlock.OP_ADDI:  x[rd[i]] = x[rn[i]] + imm[i]; break;
+                    case BasicBlock.OP_SUBI:  x[rd[i]] = x[rn[i]] - imm[i]; break;
+                    case BasicBlock.OP_MOV:   x[rd[i]] = imm[i]; break;
+                    case BasicBlock.OP_LOAD: {
+                        long address = memory.checkRange(x[rn[i]] + imm[i], rm[i]);
+                        x[rd[i]] = memory.read(address, rm[i]);
+                        break;
+                    }
+                    case BasicBlock.OP_LOAD_SIGNED: {
+                        long address = memory.checkRange(x[rn[i]] + imm[i], rm[i]);
+                        x[rd[i]] = memory.readSigned(address, rm[i]);
+                        break;
+                    }
+                    case BasicBlock.OP_STORE: {
+                        long address = memory.checkRange(x[rn[i]] + imm[i], rm[i]);
+                        memory.write(address, x[rd[i]], rm[i]);
+                        break;
+                    }
+                    // Branches are always the last op of their block
+                    case BasicBlock.OP_BRANCH:
+                        return (int) imm[i];
+                    case BasicBlock.OP_CBZ:
+                        return zeroBranchTarget(x[rn[i]], (int) imm[i], block.fallThroughPc());
+                    case BasicBlock.OP_CBNZ:
+                        return zeroBranchTarget(x[rn[i]], block.fallThroughPc(), (int) imm[i]);
+                    case BasicBlock.OP_BCOND:
+                        return conditionalBranchTarget(rm[i], (int) imm[i], block.fallThroughPc());
+                    case BasicBlock.OP_BL:
+                        x[rd[i]] = block.fallThroughPc();
+                        return (int) imm[i];
+                    case BasicBlock.OP_BR:
+                        return branchRegisterTarget(x[rn[i]]);
+                    default:
+                        execute(block.instructions[i], block.startPc + i);
+                        break;
+                }
+            }
+        } catch (RuntimeException e) {
+            faultIndex = i;
+            throw e;
+        }
+        return block.fallThroughPc();
+    }
+
+    /**
+     * @return The index within the block of the instruction that threw during the last {@link #executeBlock}.
+     */
+    int getFaultIndex() {
+        return faultIndex;
+    }
+
+    // --- Branch helpers (also called from compiled blocks) ---
+
+    /**
+     * Picks the successor of CBZ or CBNZ.
+     * @param value The tested register.
+     * @param ifZero The next PC if the register is zero.
+     * @param ifNonZero The next PC otherwise.
+     * @return The next PC.
+     */
+    static int zeroBranchTarget(long value, int ifZero, int ifNonZero) {
+        return value == 0 ? ifZero : ifNonZero;
+    }
+
+    /**
+     * Picks the successor of B.cond from the current flags.
+     * @param condition The condition code.
+     * @param taken The branch target.
+     * @param notTaken The next PC if the condition does not hold.
+     * @return The next PC.
+     */
+    int conditionalBranchTarget(int condition, int taken, int notTaken) {
+        return ArithmeticLogicUnit.conditionHolds(condition, flagReader.readFlags()) ? taken : notTaken;
+    }
+
+    /**
+     * Converts the register operand of BR to a PC. A target past the end of the program ends it, as falling off the end does.
+     * @param value The register value, an instruction index.
+     * @return The next PC.
+     * @throws InvalidInstructionException if the value is not a valid instruction index.
+     */
+    static int branchRegisterTarget(long value) {
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new InvalidInstructionException("BR target out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    // --- Private helpers ---
+
+    static long divide(long dividend, long divisor, boolean unsigned) {
+        if (divisor == 0) throw new ArithmeticException("Division by zero");
+        return unsigned ? Long.divideUnsigned(dividend, divisor) : dividend / divisor;
+    }
+
+    private void executeALU(DecodedInstruction d, long operandA, long operandB) {
+        ArithmeticLogicUnit.ALUOperation op = MicroStepManager.aluOperationFor(d.operation);
+        long result = alu.compute(operandA, operandB, op);
+
+        if (d.flagWrite && flagUpdater != null) {
+            flagUpdater.updateFlags(ArithmeticLogicUnit.flags(operandA, operandB, result, op));
+        }
+        registerFile.writeRegister(d.rd, result, d.regWrite);
+    }
+}
@@ -0,0 +1,284 @@
+package core;
+
+import java.lang.invoke.MethodHandles;
+import java.util.BitSet;
+import util.ClassFileWriter;
+import util.ColoredLog;
+
+/**
+ * Compiles hot {@link BasicBlock}s to JVM bytecode so HotSpot can optimise the guest code itself.
+ * Each block becomes a hidden class extending {@link CompiledBlock}: the registers it uses are loaded
+ * into {@code long} locals on entry, ALU operations become plain JVM arithmetic, memory accesses call
+ * {@link memory.Memory} directly, and only modified registers are written back.
+ * Flag-setting and unsupported instructions are delegated to {@link FunctionalExecutor#execute}, and
+ * conditional branches pick their successor through the executor's branch helpers, so the generated
+ * code itself never branches.
+ */
+final class JitCompiler {
+    private static final String CLASS_NAME = "core/JitBlock";
+    private static final String SUPER_NAME = "core/CompiledBlock";
+    private static final String MEMORY = "memory/Memory";
+    private static final String EXECUTOR = "core/FunctionalExecutor";
+    private static final String RUN_DESCRIPTOR =
+            "([JLmemory/Memory;Lcore/FunctionalExecutor;[Linstruction/Instruction;)I";
+
+    // Local variable slots of run(): this, registers, memory, executor, instructions, then X0..X30 as longs
+    private static final int REGISTERS = 1;
+    private static final int MEMORY_LOCAL = 2;
+    private static final int EXECUTOR_LOCAL = 3;
+    private static final int INSTRUCTIONS = 4;
+    private static final int FIRST_REGISTER_SLOT = 5;
+    private static final int MAX_STACK = 16;
+
+    private final MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+    /**
+     * Compiles a block.
+     * @param block The translated block.
+     * @return The compiled block, or null if the generated class was rejected.
+     */
+    CompiledBlock compile(BasicBlock block) {
+        byte[] classFile = generate(block);
+        try {
+            Class<?> compiled = lookup.defineHiddenClass(classFile, true).lookupClass();
+            return (CompiledBlock) compiled.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            System.err.printf("%sJIT: cannot compile block at PC %d: %s%n",
+                    ColoredLog.WARNING, block.startPc, e);
+            return null;
+        }
+    }
+
+    /**
+     * @return The class file for the block.
+     */
+    byte[] generate(BasicBlock block) {
+        ClassFileWriter cw = new ClassFileWriter(ClassFileWriter.ACC_FINAL | ClassFileWriter.ACC_SUPER, CLASS_NAME, SUPER_NAME);
+
+        cw.addMethod(ClassFileWriter.ACC_PUBLIC, "<init>", "()V", 1, 1)
+                .local(ClassFileWriter.ALOAD, 0)
+                .op(ClassFileWriter.INVOKESPECIAL, cw.methodRef(SUPER_NAME, "<init>", "()V"))
+                .op(ClassFileWriter.RETURN);
+
+        ClassFileWriter.MethodWriter code = cw.addMethod(0, "run", RUN_DESCRIPTOR, MAX_STACK, FIRST_REGISTER_SLOT + 62);
+        new BlockEmitter(cw, code, block).emit();
+        return cw.toByteArray();
+    }
+
+    /**
+     * Emits the body of run() for one block, tracking which register locals are newer than the array.
+     */
+    private static final class BlockEmitter {
+        private final ClassFileWriter cw;
+        private final ClassFileWriter.MethodWriter code;
+        private final BasicBlock block;
+        private final BitSet dirty = new BitSet(31);
+
+        BlockEmitter(ClassFileWriter cw, ClassFileWriter.MethodWriter code, BasicBlock block) {
+            this.cw = cw;
+            this.code = code;
+            this.block = block;
+        }
+
+        void emit() {
+            loadUsedRegisters();
+            for (int i = 0; i < block.length; i++) {
+                int rd = block.rd[i];
+                int rn = block.rn[i];
+                int rm = block.rm[i];
+                long imm = block.imm[i];
+                switch (block.ops[i]) {
+                    case BasicBlock.OP_ADD:   binary(rd, rn, rm, ClassFileWriter.LADD); break;
+                    case BasicBlock.OP_SUB:   binary(rd, rn, rm, ClassFileWriter.LSUB); break;
+                    case BasicBlock.OP_AND:   binary(rd, rn, rm, ClassFileWriter.LAND); break;
+                    case BasicBlock.OP_ORR:   binary(rd, rn, rm, ClassFileWriter.LOR); break;
+                    case BasicBlock.OP_EOR:   binary(rd, rn, rm, ClassFileWriter.LXOR); break;
+                    case BasicBlock.OP_MUL:   binary(rd, rn, rm, ClassFileWriter.LMUL); break;
+                    case BasicBlock.OP_SMULH:
+                        read(rn);
+                        read(rm);
+                        code.op(ClassFileWriter.INVOKESTATIC, cw.methodRef("java/lang/Math", "multiplyHigh", "(JJ)J"));
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_SDIV:
+                    case BasicBlock.OP_UDIV:
+                        mayThrow(i);
+                        read(rn);
+                        read(rm);
+                        code.pushInt(block.ops[i] == BasicBlock.OP_UDIV ? 1 : 0);
+                        code.op(ClassFileWriter.INVOKESTATIC, cw.methodRef(EXECUTOR, "divide", "(JJZ)J"));
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_LSL:   shift(rd, rn, imm, ClassFileWriter.LSHL); break;
+                    case BasicBlock.OP_LSR:   shift(rd, rn, imm, ClassFileWriter.LUSHR); break;
+                    case BasicBlock.OP_ASR:   shift(rd, rn, imm, ClassFileWriter.LSHR); break;
+                    case BasicBlock.OP_ADDI:
+                        read(rn);
+                        code.pushLong(imm).op(ClassFileWriter.LADD);
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_SUBI:
+                        read(rn);
+                        code.pushLong(imm).op(ClassFileWriter.LSUB);
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_MOV:
+                        code.pushLong(imm);
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_LOAD:
+                    case BasicBlock.OP_LOAD_SIGNED:
+                        mayThrow(i);
+                        code.local(ClassFileWriter.ALOAD, MEMORY_LOCAL);
+                        checkedAddress(rn, imm, rm);
+                        code.pushInt(rm);
+                        code.op(ClassFileWriter.INVOKEVIRTUAL, cw.methodRef(MEMORY,
+                                block.ops[i] == BasicBlock.OP_LOAD ? "read" : "readSigned", "(JI)J"));
+                        write(rd);
+                        break;
+                    case BasicBlock.OP_STORE:
+                        mayThrow(i);
+                        code.local(ClassFileWriter.ALOAD, MEMORY_LOCAL);
+                        checkedAddress(rn, imm, rm);
+                        read(rd);
+                        code.pushInt(rm);
+                        code.op(ClassFileWriter.INVOKEVIRTUAL, cw.methodRef(MEMORY, "write", "(JJI)V"));
+                        break;
+                    case BasicBlock.OP_BRANCH:
+                        returnPc((int) imm);
+                        return;
+                    case BasicBlock.OP_CBZ:
+                    case BasicBlock.OP_CBNZ: {
+                        boolean zero = block.ops[i] == BasicBlock.OP_CBZ;
+                        flush();
+                        read(rn);
+                        code.pushInt(zero ? (int) imm : block.fallThroughPc());
+                        code.pushInt(zero ? block.fallThroughPc() : (int) imm);
+                        code.op(ClassFileWriter.INVOKESTATIC, cw.methodRef(EXECUTOR, "zeroBranchTarget", "(JII)I"));
+                        code.op(ClassFileWriter.IRETURN);
+                        return;
+                    }
+                    case BasicBlock.OP_BL:
+                        code.pushLong(block.fallThroughPc());
+                        write(rd);
+                        returnPc((int) imm);
+                        return;
+                    case BasicBlock.OP_BR:
+                        mayThrow(i);
+                        read(rn);
+                        code.op(ClassFileWriter.INVOKESTATIC, cw.methodRef(EXECUTOR, "branchRegisterTarget", "(J)I"));
+                        code.op(ClassFileWriter.IRETURN);
+                        return;
+                    case BasicBlock.OP_BCOND:
+                        flush();
+                        code.local(ClassFileWriter.ALOAD, EXECUTOR_LOCAL)
+                                .pushInt(rm).pushInt((int) imm).pushInt(block.fallThroughPc())
+                                .op(ClassFileWriter.INVOKEVIRTUAL, cw.methodRef(EXECUTOR, "conditionalBranchTarget", "(III)I"))
+                                .op(ClassFileWriter.IRETURN);
+                        return;
+                    default:
+                        generic(i, rd);
+                        break;
+                }
+            }
+            returnPc(block.fallThroughPc());
+        }
+
+        // --- Registers ---
+
+        private static int slot(int register) {
+            return FIRST_REGISTER_SLOT + register * 2;
+        }
+
+        private void loadUsedRegisters() {
+            BitSet used = new BitSet(31);
+            for (int i = 0; i < block.length; i++) {
+                used.set(block.rn[i]);
+                used.set(block.rd[i]);
+                if (block.ops[i] < BasicBlock.OP_LSL) {
+                    used.set(block.rm[i]); // rm is a register only for the three-register ops
+                }
+            }
+            used.clear(31, RegisterStorage.DISCARD + 1);
+            for (int r = used.nextSetBit(0); r >= 0; r = used.nextSetBit(r + 1)) {
+                code.local(ClassFileWriter.ALOAD, REGISTERS).pushInt(r).op(ClassFileWriter.LALOAD).local(ClassFileWriter.LSTORE, slot(r));
+            }
+        }
+
+        private void read(int register) {
+            if (register == 31) {
+                code.op(ClassFileWriter.LCONST_0); // XZR
+            } else {
+                code.local(ClassFileWriter.LLOAD, slot(register));
+            }
+        }
+
+        private void write(int register) {
+            if (register == RegisterStorage.DISCARD || register == 31) {
+                code.op(ClassFileWriter.POP2);
+            } else {
+                code.local(ClassFileWriter.LSTORE, slot(register));
+                dirty.set(register);
+            }
+        }
+
+        private void flush() {
+            for (int r = dirty.nextSetBit(0); r >= 0; r = dirty.nextSetBit(r + 1)) {
+                code.local(ClassFileWriter.ALOAD, REGISTERS).pushInt(r).local(ClassFileWriter.LLOAD, slot(r)).op(ClassFileWriter.LASTORE);
+            }
+            dirty.clear();
+        }
+
+        // --- Instruction shapes ---
+
+        private void binary(int rd, int rn, int rm, int opcode) {
+            read(rn);
+            read(rm);
+            code.op(opcode);
+            write(rd);
+        }
+
+        private void shift(int rd, int rn, long amount, int opcode) {
+            read(rn);
+            code.pushInt((int) amount);
+            code.op(opcode);
+            write(rd);
+        }
+
+        /**
+         * Leaves memory.checkRange(X[rn] + imm, size) on the stack, above the Memory reference already pushed.
+         */
+        private void checkedAddress(int rn, long imm, int size) {
+            code.local(ClassFileWriter.ALOAD, MEMORY_LOCAL);
+            read(rn);
+            code.pushLong(imm).op(ClassFileWriter.LADD);
+            code.pushLong(size);
+            code.op(ClassFileWriter.INVOKEVIRTUAL, cw.methodRef(MEMORY, "checkRange", "(JJ)J"));
+        }
+
+        /**
+         * Makes the architectural state precise before an instruction that may throw.
+         */
+        private void mayThrow(int index) {
+            flush();
+            code.local(ClassFileWriter.ALOAD, 0).pushInt(index).op(ClassFileWriter.PUTFIELD, cw.fieldRef(SUPER_NAME, "progress", "I"));
+        }
+
+        private void generic(int index, int rd) {
+            mayThrow(index);
+            code.local(ClassFileWriter.ALOAD, EXECUTOR_LOCAL)
+                    .local(ClassFileWriter.ALOAD, INSTRUCTIONS).pushInt(index).op(ClassFileWriter.AALOAD)
+                    .pushInt(block.startPc + index)
+                    .op(ClassFileWriter.INVOKEVIRTUAL, cw.methodRef(EXECUTOR, "execute", "(Linstruction/Instruction;I)I"))
+                    .op(ClassFileWriter.POP);
+            if (rd != RegisterStorage.DISCARD) { // Pick up the register the executor wrote
+                code.local(ClassFileWriter.ALOAD, REGISTERS).pushInt(rd).op(ClassFileWriter.LALOAD).local(ClassFileWriter.LSTORE, slot(rd));
+            }
+        }
+
+        private void returnPc(int pc) {
+            flush();
+            code.pushInt(pc).op(ClassFileWriter.IRETURN);
+        }
+    }
+}
@@ -21,7 +21,29 @@ public class MicroStepManager {
      */
     @FunctionalInterface
     public interface FlagUpdater {
-        void updateFlags(ArithmeticLogicUnit.ALUResult result);
+        /**
+         * @param nzcv The new flags, packed as {@code ArithmeticLogicUnit.FLAG_*} bits.
+         */
+        void updateFlags(int nzcv);
+    }
+    
+    /**
+     * Interface for reading the CPU flags, e.g. to evaluate B.cond
+     */
+    @FunctionalInterface
+    public interface FlagReader {
+        /**
+         * @return The current flags, packed as {@code ArithmeticLogicUnit.FLAG_*} bits.
+         */
+        int readFlags();
+    }
+    
+    /**
+     * Interface for redirecting the CPU's PC when a branch is taken
+     */
+    @FunctionalInterface
+    public interface BranchUpdater {
+        void branchTo(int targetPc);
     }
     
     // Dependencies
@@ -30,6 +52,7 @@ public class MicroStepManager {
     private final ControlUnit controlUnit;
     private final Memory memory;
     private FlagUpdater flagUpdater;
+    private BranchUpdater branchUpdater;
     
     // Micro-step execution state
     private List<MicroStep> microStepQueue;
@@ -37,6 +60,7 @@ public class MicroStepManager {
     
     // CPU state references (passed from CPUSimulator)
     private int pc;
+    private int flags; // Packed NZCV, for B.cond
     
     public MicroStepManager(RegisterFileController registerFile, ArithmeticLogicUnit alu, 
                            ControlUnit controlUnit, Memory memory, FlagUpdater flagUpdater) {
@@ -49,13 +73,24 @@ public class MicroStepManager {
         this.currentMicroStepIndex = 0;
     }
     
+    public MicroStepManager(RegisterFileController registerFile, ArithmeticLogicUnit alu, 
+                           ControlUnit controlUnit, Memory memory, FlagUpdater flagUpdater,
+                           BranchUpdater branchUpdater) {
+        this(registerFile, alu, controlUnit, memory, flagUpdater);
+        this.branchUpdater = branchUpdater;
+    }
+    
     /**
      * Updates the CPU state references used by micro-steps
      */
     public void updateCPUState(int pc, boolean zeroFlag, boolean negativeFlag, 
                                boolean overflowFlag, boolean carryFlag, boolean branchTaken) {
         this.pc = pc;
-        // Note: We don't store flags in MicroStepManager since they are passed as needed
+        // Only the packed copy used to evaluate B.cond is kept; flag writes go through the FlagUpdater
+        this.flags = (negativeFlag ? ArithmeticLogicUnit.FLAG_N : 0)
+                   | (zeroFlag ? ArithmeticLogicUnit.FLAG_Z : 0)
+                   | (carryFlag ? ArithmeticLogicUnit.FLAG_C : 0)
+                   | (overflowFlag ? ArithmeticLogicUnit.FLAG_V : 0);
     }
     
     /**
@@ -69,12 +104,19 @@ public class MicroStepManager {
         if (instruction instanceof IFormatInstruction) {
             generateIFormatSteps((IFormatInstruction) instruction, zeroFlag);
         }
+        else if (instruction instanceof RFormatInstruction
+                && instruction.getDecoded().operation == DecodedInstruction.Operation.BR) {
+            generateBRSteps((RFormatInstruction) instruction);
+        }
         else if (instruction instanceof RFormatInstruction) {
             generateRFormatSteps((RFormatInstruction) instruction, zeroFlag);
         } 
         else if (instruction instanceof BFormatInstruction) {
             generateBFormatSteps((BFormatInstruction) instruction, zeroFlag);
         } 
+        else if (instruction instanceof CBFormatInstruction) {
+            generateCBFormatSteps((CBFormatInstruction) instruction);
+        } 
         else if (instruction instanceof DFormatInstruction) {
             generateDFormatSteps((DFormatInstruction) instruction, zeroFlag);
         } 
@@ -219,19 +261,19 @@ public class MicroStepManager {
     private void generateIFormatSteps(IFormatInstruction iInst, boolean zeroFlag) {
         InstructionDefinition definition = iInst.getDefinition();
         ControlSignals signals = controlUnit.generateControlSignals(iInst);
-        String mnemonic = definition.getMnemonic();
 
-        int rd = iInst.getRd_I();
-        int rn = iInst.getRn_I();
-        long immediate = iInst.getImmediate_I();
+        DecodedInstruction decoded = iInst.getDecoded();
+
+        int rd = decoded.rd;
+        int rn = decoded.rn;
+        long immediate = decoded.immediate;
 
         long rnValue = registerFile.readRegister(rn);
 
-        ArithmeticLogicUnit.ALUOperation op = mnemonic.equals("ADDI") ?
-            ArithmeticLogicUnit.ALUOperation.ADD : ArithmeticLogicUnit.ALUOperation.SUB;
+        ArithmeticLogicUnit.ALUOperation op = aluOperationFor(decoded.operation);
 
-        final ArithmeticLogicUnit.ALUResult aluResult = alu.execute(rnValue, immediate, op);
-        final long result = aluResult.result;
+        final long result = alu.compute(rnValue, immediate, op);
+        final int nzcv = ArithmeticLogicUnit.flags(rnValue, immediate, result, op);
 
         // Step 1: Instruction Fetch
         generateInstructionFetchSteps();
@@ -289,7 +331,7 @@ public class MicroStepManager {
             )),
             () -> {
                 if (signals.isFlagWrite() && flagUpdater != null) {
-                    flagUpdater.updateFlags(aluResult);
+                    flagUpdater.updateFlags(nzcv);
                 }
             }
         ));
@@ -324,56 +366,30 @@ public class MicroStepManager {
     private void generateRFormatSteps(RFormatInstruction rInst, boolean zeroFlag) {
         InstructionDefinition definition = rInst.getDefinition();
         ControlSignals signals = definition.getControlSignals();
-        String mnemonic = definition.getMnemonic();
 
-        int rd = rInst.getRd_R();
-        int rn = rInst.getRn_R();
-        int rm = rInst.getRm_R();
-        int shamt = rInst.getShamt_R();
+        DecodedInstruction decoded = rInst.getDecoded();
+
+        int rd = decoded.rd;
+        int rn = decoded.rn;
+        int rm = decoded.rm;
+        int shamt = decoded.shamt;
 
         long rnValue = registerFile.readRegister(rn);
         long rmValue = registerFile.readRegister(rm);
 
-        // Determine ALU operation from mnemonic
-        ArithmeticLogicUnit.ALUOperation op;
-        long operandB = rmValue;
-
-        switch (mnemonic) {
-            case "ADD":  op = ArithmeticLogicUnit.ALUOperation.ADD; break;
-            case "SUB":  op = ArithmeticLogicUnit.ALUOperation.SUB; break;
-            case "AND":  op = ArithmeticLogicUnit.ALUOperation.AND; break;
-            case "ORR":  op = ArithmeticLogicUnit.ALUOperation.ORR; break;
-            case "EOR":  op = ArithmeticLogicUnit.ALUOperation.EOR; break;
-            case "MUL":  op = ArithmeticLogicUnit.ALUOperation.MUL; break;
-            case "SDIV": op = ArithmeticLogicUnit.ALUOperation.SDIV; break;
-            case "UDIV": op = ArithmeticLogicUnit.ALUOperation.UDIV; break;
-            case "CMP":  op = ArithmeticLogicUnit.ALUOperation.SUB; break;
-            case "SMULH": op = ArithmeticLogicUnit.ALUOperation.SMULH; break;
-            case "UMULH": op = ArithmeticLogicUnit.ALUOperation.UMULH; break;
-            case "LSL":
-                op = ArithmeticLogicUnit.ALUOperation.LSL;
-                operandB = shamt;
-                break;
-            case "LSR":
-                op = ArithmeticLogicUnit.ALUOperation.LSR;
-                operandB = shamt;
-                break;
-            case "ASR":
-                op = ArithmeticLogicUnit.ALUOperation.ASR;
-                operandB = shamt;
-                break;
-            default:
-                op = ArithmeticLogicUnit.ALUOperation.ADD;
-        }
+        // Determine ALU operation from the decoded operation; shifts take shamt as operand B
+        ArithmeticLogicUnit.ALUOperation op = aluOperationFor(decoded.operation);
+        boolean isShift = isShiftOperation(decoded.operation);
+        long operandB = isShift ? shamt : rmValue;
 
-        final ArithmeticLogicUnit.ALUResult aluResult = alu.execute(rnValue, operandB, op);
-        final long result = aluResult.result;
+        final long result = alu.compute(rnValue, operandB, op);
+        final int nzcv = ArithmeticLogicUnit.flags(rnValue, operandB, result, op);
 
         // Step 1: Instruction Fetch
         generateInstructionFetchSteps();
 
         // Step 2: Decode & Register Read
-        if (mnemonic.equals("LSL") || mnemonic.equals("LSR") || mnemonic.equals("ASR")) {
+        if (isShift) {
             microStepQueue.add(new MicroStep(
                 "Step 2: Decode & Register Read",
                 PipelineStage.DECODE,
@@ -441,7 +457,7 @@ public class MicroStepManager {
                 BusID.ALU_TO_MUX_memtoreg_RESULT.name(), String.valueOf(result)            )),
             () -> {
                 if (signals.isFlagWrite() && flagUpdater != null) {
-                    flagUpdater.updateFlags(aluResult);
+                    flagUpdater.updateFlags(nzcv);
                 }
             }
         ));
@@ -472,8 +488,8 @@ public class MicroStepManager {
 
     // --- B-Format instruction micro-steps ---
     private void generateBFormatSteps(BFormatInstruction bInst, boolean zeroFlag) {
-        long offset = bInst.getAddress_B();
-        final int targetPc = this.pc + (int) offset;
+        long offset = bInst.getDecoded().immediate;
+        final int targetPc = bInst.getDecoded().target; // Resolved when the program was assembled
         InstructionDefinition definition = bInst.getDefinition();
 
         // Step 1: Instruction Fetch
@@ -511,18 +527,181 @@ public class MicroStepManager {
                 BusID.CONTROL_UNCOND_TO_OR_GATE.name(), "1",
                 BusID.MUX_PCSRC_TO_PC.name(), String.format("0x%X", targetPc * 4))),
             () -> {
-                // PC and branch flag will be updated by the caller
+                if (branchUpdater != null) {
+                    branchUpdater.branchTo(targetPc);
+                }
+            }
+        ));
+
+        // Step 4: BL links the return address (the next instruction) into X30
+        if (bInst.getDecoded().operation == DecodedInstruction.Operation.BL) {
+            final long returnPc = this.pc + 1;
+            microStepQueue.add(new MicroStep(
+                "Step 4: Link (X30 = PC + 1)",
+                PipelineStage.WRITE_BACK,
+                new ArrayList<>(List.of("ADD_1", "REGISTERS")),
+                new ArrayList<>(List.of(BusID.PC_TO_ADD_1.name(), BusID.ADD_1_TO_MUX_PCSRC.name())),
+                new HashMap<>(Map.of(BusID.ADD_1_TO_MUX_PCSRC.name(), String.format("0x%X", returnPc * 4))),
+                () -> registerFile.writeRegister(Constants.LINK_REGISTER, returnPc, true)
+            ));
+        }
+    }
+
+    // --- BR instruction micro-steps ---
+    private void generateBRSteps(RFormatInstruction rInst) {
+        DecodedInstruction decoded = rInst.getDecoded();
+        InstructionDefinition definition = rInst.getDefinition();
+        int rn = decoded.rn;
+        long rnValue = registerFile.readRegister(rn);
+
+        // Step 1: Instruction Fetch
+        generateInstructionFetchSteps();
+
+        // Step 2: Decode & Register Read
+        microStepQueue.add(new MicroStep(
+            "Step 2: Decode & Register Read",
+            PipelineStage.DECODE,
+            new ArrayList<>(List.of("INSTRUCTION_MEMORY", "CONTROL_UNIT", "REGISTERS")),
+            new ArrayList<>(List.of(BusID.INSTRUCTION_MEMORY_TO_CONTROL_UNIT.name(),
+                    BusID.INSTRUCTION_MEMORY_TO_REGISTERS_READ1.name())),
+            new HashMap<>(Map.of(
+                BusID.INSTRUCTION_MEMORY_TO_CONTROL_UNIT.name(), definition.getOpcodeId(),
+                BusID.INSTRUCTION_MEMORY_TO_REGISTERS_READ1.name(), String.format("%5s", Integer.toBinaryString(rn & 0x1F)).replace(' ', '0')
+            )),
+            null
+        ));
+
+        // Step 3: Branch to the address held in Xn (Update PC)
+        microStepQueue.add(new MicroStep(
+            "Step 3: Branch to Register (Update PC)",
+            PipelineStage.EXECUTE,
+            new ArrayList<>(List.of("REGISTERS", "MUX_PCSRC", "PC")),
+            new ArrayList<>(List.of(BusID.CONTROL_UNCOND_TO_OR_GATE.name(), BusID.OR_GATE_TO_MUX_PCSRC.name(),
+                    BusID.MUX_PCSRC_TO_PC.name())),
+            new HashMap<>(Map.of(
+                BusID.CONTROL_UNCOND_TO_OR_GATE.name(), "1",
+                BusID.MUX_PCSRC_TO_PC.name(), String.format("0x%X", rnValue * 4))),
+            () -> {
+                int targetPc = FunctionalExecutor.branchRegisterTarget(rnValue);
+                if (branchUpdater != null) {
+                    branchUpdater.branchTo(targetPc);
+                }
+            }
+        ));
+    }
+    
+    // --- CB-Format instruction micro-steps ---
+    private void generateCBFormatSteps(CBFormatInstruction cbInst) {
+        DecodedInstruction decoded = cbInst.getDecoded();
+        InstructionDefinition definition = cbInst.getDefinition();
+        ControlSignals signals = controlUnit.generateControlSignals(cbInst);
+        long offset = decoded.immediate;
+        final int targetPc = decoded.target; // Resolved when the program was assembled
+        final boolean conditional = decoded.operation == DecodedInstruction.Operation.B_COND;
+
+        // CBZ/CBNZ test Rt through the ALU (pass B); B.cond tests the flags
+        int rt = decoded.rd;
+        long rtValue = conditional ? 0 : registerFile.readRegister(rt);
+        final boolean taken;
+        if (conditional) {
+            taken = ArithmeticLogicUnit.conditionHolds(cbInst.getCondition(), flags);
+        } else {
+            taken = (rtValue == 0) == (decoded.operation == DecodedInstruction.Operation.CBZ);
+        }
+
+        // Step 1: Instruction Fetch
+        generateInstructionFetchSteps();
+
+        // Step 2: Decode & Calculate Branch Target
+        Map<String, String> decodeBusMap = new HashMap<>(Map.of(
+            BusID.INSTRUCTION_MEMORY_TO_CONTROL_UNIT.name(), definition.getOpcodeId(),
+            BusID.PC_TO_ADD_2.name(), String.format("0x%X", this.pc),
+            BusID.INSTRUCTION_MEMORY_TO_SIGN_EXTEND.name(), String.format("%d", offset),
+            BusID.SIGN_EXTEND_TO_SHIFT_LEFT_2.name(), String.valueOf(offset),
+            BusID.ADD_2_TO_MUX_PCSRC.name(), String.format("0x%X", targetPc)
+        ));
+        List<String> decodeBuses = new ArrayList<>(List.of(BusID.INSTRUCTION_MEMORY_TO_CONTROL_UNIT.name(),
+                BusID.INSTRUCTION_MEMORY_TO_SIGN_EXTEND.name(),
+                BusID.SIGN_EXTEND_TO_SHIFT_LEFT_2.name(), BusID.PC_TO_ADD_2.name(),
+                BusID.SHIFT_LEFT_2_TO_ADD.name(),
+                BusID.ADD_2_TO_MUX_PCSRC.name()));
+        if (!conditional) {
+            decodeBuses.add(BusID.INSTRUCTION_MEMORY_TO_MUX_reg2loc_1.name());
+            decodeBuses.add(BusID.MUX_reg2loc_TO_REGISTERS_READ2.name());
+            decodeBusMap.put(BusID.INSTRUCTION_MEMORY_TO_MUX_reg2loc_1.name(), String.format("%5s", Integer.toBinaryString(rt & 0x1F)).replace(' ', '0'));
+            decodeBusMap.put(BusID.MUX_reg2loc_TO_REGISTERS_READ2.name(), String.format("%5s", Integer.toBinaryString(rt & 0x1F)).replace(' ', '0'));
+        }
+        microStepQueue.add(new MicroStep(
+            "Step 2: Decode & Calculate Branch Target",
+            PipelineStage.DECODE,
+            new ArrayList<>(List.of("CONTROL_UNIT", "REGISTERS", "SIGN_EXTEND", "ADD_BRANCH", "SHIFT_LEFT_2")),
+            decodeBuses,
+            decodeBusMap,
+            null
+        ));
+
+        // Step 2: Control Signal Generation
+        generateControlUnitSteps(signals, definition, !conditional && rtValue == 0);
+
+        // Step 3: Evaluate the branch condition
+        if (conditional) {
+            microStepQueue.add(new MicroStep(
+                "Step 3: Check Condition " + CBFormatInstruction.conditionName(cbInst.getCondition()),
+                PipelineStage.EXECUTE,
+                new ArrayList<>(List.of("NFLAG", "ZFLAG", "CFLAG", "VFLAG", "AND_GATE", "OR_GATE")),
+                new ArrayList<>(List.of(BusID.FLAG_TO_AND_GATE.name(), BusID.CONTROL_FLAG_BRANCH_TO_AND1_GATE.name(),
+                        BusID.AND_GATE_TO_OR_GATE.name())),
+                new HashMap<>(Map.of(
+                    BusID.FLAG_TO_AND_GATE.name(), String.format("%4s", Integer.toBinaryString(flags)).replace(' ', '0'),
+                    BusID.CONTROL_FLAG_BRANCH_TO_AND1_GATE.name(), "1",
+                    BusID.AND_GATE_TO_OR_GATE.name(), taken ? "1" : "0")),
+                null
+            ));
+        } else {
+            microStepQueue.add(new MicroStep(
+                "Step 3: Execute (ALU Zero Test)",
+                PipelineStage.EXECUTE,
+                new ArrayList<>(List.of("REGISTERS", "MUX_ALUsrc", "ALU", "AND2_GATE", "OR_GATE")),
+                new ArrayList<>(List.of(BusID.REGISTERS_TO_MUX_ALUsrc_READ2.name(), BusID.MUX_ALUsrc_TO_ALU.name(),
+                        BusID.ALU_TO_AND2_GATE.name(), BusID.CONTROL_ZERO_BRANCH_TO_AND2_GATE.name(),
+                        BusID.AND2_GATE_TO_OR_GATE.name())),
+                new HashMap<>(Map.of(
+                    BusID.REGISTERS_TO_MUX_ALUsrc_READ2.name(), String.valueOf(rtValue),
+                    BusID.MUX_ALUsrc_TO_ALU.name(), String.valueOf(rtValue),
+                    BusID.ALU_TO_AND2_GATE.name(), rtValue == 0 ? "1" : "0",
+                    BusID.CONTROL_ZERO_BRANCH_TO_AND2_GATE.name(), "1",
+                    BusID.AND2_GATE_TO_OR_GATE.name(), taken ? "1" : "0")),
+                null
+            ));
+        }
+
+        // Step 4: Branch decision (Update PC)
+        microStepQueue.add(new MicroStep(
+            taken ? "Step 4: Branch Taken (Update PC)" : "Step 4: Branch Not Taken",
+            PipelineStage.EXECUTE,
+            new ArrayList<>(List.of("OR_GATE", "MUX_PCSRC", "PC")),
+            new ArrayList<>(List.of(BusID.OR_GATE_TO_MUX_PCSRC.name(),
+                    taken ? BusID.ADD_2_TO_MUX_PCSRC.name() : BusID.ADD_1_TO_MUX_PCSRC.name(),
+                    BusID.MUX_PCSRC_TO_PC.name())),
+            new HashMap<>(Map.of(
+                BusID.OR_GATE_TO_MUX_PCSRC.name(), taken ? "1" : "0",
+                BusID.MUX_PCSRC_TO_PC.name(), String.format("0x%X", (taken ? targetPc : this.pc + 1) * 4))),
+            () -> {
+                if (taken && branchUpdater != null) {
+                    branchUpdater.branchTo(targetPc);
+                }
             }
         ));
     }
     
     // --- D-Format instruction micro-steps ---
     private void generateDFormatSteps(DFormatInstruction dInst, boolean zeroFlag) {
-        int rt = dInst.getRt_D();
-        int rn = dInst.getRn_D();
-        int rawImm = dInst.getAddress_D();
-        // Sign-extend the 9-bit immediate value
-        long imm = (rawImm & 0x100) != 0 ? (rawImm | 0xFFFFFFFFFFFFFE00L) : rawImm;
+        DecodedInstruction decoded = dInst.getDecoded();
+        int rt = decoded.rd;
+        int rn = decoded.rn;
+        // The decoded immediate is already sign-extended from 9 bits
+        long imm = decoded.immediate;
+        int rawImm = (int) (imm & 0x1FF);
         long rnValue = registerFile.readRegister(rn);
         long rtValue = registerFile.readRegister(rt);
         
@@ -530,7 +709,9 @@ public class MicroStepManager {
         System.out.printf("D-format address calculation: X%d=0x%X + imm=%d (0x%X) = 0x%X%n", 
             rn, rnValue, imm, imm & 0xFFFFFFFFL, rnValue + imm);
             
-        long address = validateMemoryAddress(rnValue + imm);
+        int size = decoded.accessSize;
+        long address = validateMemoryAddress(rnValue + imm, size);
+        boolean isLoad = decoded.operation == DecodedInstruction.Operation.LDUR;
         InstructionDefinition definition = dInst.getDefinition();
         ControlSignals signals = controlUnit.generateControlSignals(dInst);
 
@@ -556,7 +737,7 @@ public class MicroStepManager {
                 BusID.INSTRUCTION_MEMORY_TO_SIGN_EXTEND.name(), String.format("%9s", Long.toBinaryString(rawImm & 0x1FF)).replace(' ', '0'),
                 BusID.INSTRUCTION_MEMORY_TO_REGISTERS_READ1.name(), String.format("%5s", Integer.toBinaryString(rn & 0x1F)).replace(' ', '0'),
                 BusID.INSTRUCTION_MEMORY_TO_MUX_reg2loc_1.name(), String.format("%5s", Integer.toBinaryString(rt & 0x1F)).replace(' ', '0'),
-                BusID.MUX_reg2loc_TO_REGISTERS_READ2.name(), String.valueOf(dInst.isLoad() ? "0" : rtValue),
+                BusID.MUX_reg2loc_TO_REGISTERS_READ2.name(), String.valueOf(isLoad ? "0" : rtValue),
                 BusID.INSTRUCTION_MEMORY_TO_REGISTERS_WRITE.name(), String.format("%5s", Integer.toBinaryString(rt & 0x1F)).replace(' ', '0')
             )),
             null
@@ -586,7 +767,7 @@ public class MicroStepManager {
         ));
 
         // Step 5: Memory Access
-        if (dInst.isLoad()) { // Case for LDUR
+        if (isLoad) { // Case for LDUR
             microStepQueue.add(new MicroStep(
                 "Step 5: Memory Access (Read)",
                 PipelineStage.MEMORY_ACCESS,
@@ -597,7 +778,7 @@ public class MicroStepManager {
                 )),
                 new HashMap<>(Map.of(
                     BusID.ALU_TO_DATA_MEMORY_ADDRESS.name(), String.format("0x%X", address),
-                    BusID.DATA_MEMORY_TO_MUX_memtoreg_READ.name(), String.format("0x%X", memory.read(address, 8))
+                    BusID.DATA_MEMORY_TO_MUX_memtoreg_READ.name(), String.format("0x%X", loadValue(address, decoded))
                 )),
                 null
             ));
@@ -612,10 +793,10 @@ public class MicroStepManager {
                     BusID.MUX_memtoreg_TO_REGISTERS_WRITE.name()
                 )),
                 new HashMap<>(Map.of(
-                    BusID.DATA_MEMORY_TO_MUX_memtoreg_READ.name(), String.format("0x%X", memory.read(address, 8)),
-                    BusID.MUX_memtoreg_TO_REGISTERS_WRITE.name(), String.format("0x%X", memory.read(address, 8))
+                    BusID.DATA_MEMORY_TO_MUX_memtoreg_READ.name(), String.format("0x%X", loadValue(address, decoded)),
+                    BusID.MUX_memtoreg_TO_REGISTERS_WRITE.name(), String.format("0x%X", loadValue(address, decoded))
                 )),
-                () -> registerFile.writeRegister(rt, memory.read(address, 8), true)
+                () -> registerFile.writeRegister(rt, loadValue(address, decoded), true)
             ));
 
         } else { // Case for STUR
@@ -631,7 +812,7 @@ public class MicroStepManager {
                     BusID.ALU_TO_DATA_MEMORY_ADDRESS.name(), String.format("0x%X", address),
                     BusID.REGISTERS_TO_DATA_MEMORY_WRITE_DATA.name(), String.format("0x%X", rtValue)
                 )),
-                () -> memory.write(address, rtValue, 8)
+                () -> memory.write(address, rtValue, size)
             ));
             
             // Step 6: No Write-Back for STUR
@@ -648,12 +829,13 @@ public class MicroStepManager {
 
     // --- IM-Format instruction micro-steps ---
     private void generateIMFormatSteps(IMFormatInstruction imInst, boolean zeroFlag) {
-        int rd = imInst.getRd_IM();
-        int hw = imInst.getShift_IM();
-        long imm16 = imInst.getImmediate_IM();
+        DecodedInstruction decoded = imInst.getDecoded();
+        int rd = decoded.rd;
+        int hw = decoded.shift;
+        long imm16 = decoded.immediate;
         int shiftAmount = hw * 16;
         final long result = imm16 << shiftAmount;
-        int rn = imInst.getRn_IM();
+        int rn = decoded.rn;
 
         ControlSignals signals = controlUnit.generateControlSignals(imInst);
         InstructionDefinition definition = imInst.getDefinition();
@@ -713,6 +895,38 @@ public class MicroStepManager {
         ));
     }
     
+    /**
+     * Maps a decoded operation to the ALU operation that executes it.
+     */
+    static ArithmeticLogicUnit.ALUOperation aluOperationFor(DecodedInstruction.Operation operation) {
+        switch (operation) {
+            case SUB:
+            case SUBI:
+            case CMP:   return ArithmeticLogicUnit.ALUOperation.SUB;
+            case AND:   return ArithmeticLogicUnit.ALUOperation.AND;
+            case ORR:   return ArithmeticLogicUnit.ALUOperation.ORR;
+            case EOR:   return ArithmeticLogicUnit.ALUOperation.EOR;
+            case MUL:   return ArithmeticLogicUnit.ALUOperation.MUL;
+            case SMULH: return ArithmeticLogicUnit.ALUOperation.SMULH;
+            case UMULH: return ArithmeticLogicUnit.ALUOperation.UMULH;
+            case SDIV:  return ArithmeticLogicUnit.ALUOperation.SDIV;
+            case UDIV:  return ArithmeticLogicUnit.ALUOperation.UDIV;
+            case LSL:   return ArithmeticLogicUnit.ALUOperation.LSL;
+            case LSR:   return ArithmeticLogicUnit.ALUOperation.LSR;
+            case ASR:   return ArithmeticLogicUnit.ALUOperation.ASR;
+            default:    return ArithmeticLogicUnit.ALUOperation.ADD;
+        }
+    }
+
+    /**
+     * Checks whether a decoded operation is a shift, which takes shamt as its second operand.
+     */
+    static boolean isShiftOperation(DecodedInstruction.Operation operation) {
+        return operation == DecodedInstruction.Operation.LSL
+            || operation == DecodedInstruction.Operation.LSR
+            || operation == DecodedInstruction.Operation.ASR;
+    }
+
     // --- ALU Control Signal Generation ---
     private String generateAluControlSignal(int aluOp, String opcodeId) {
         switch (aluOp) {
@@ -748,20 +962,20 @@ public class MicroStepManager {
     /**
      * Validates that a memory address is within the valid bounds for this simulator.
      * @param address The address to validate
+     * @param size The access size in bytes
      * @return The validated address, or throws exception if invalid
      * @throws MemoryAccessException if address is out of bounds
      */
-    private long validateMemoryAddress(long address) {
-        // Ensure address is within the valid memory range (0 to MEMORY_SIZE-1)
-        // Also handle the case where address might be negative due to sign extension
-        if (address < 0) {
-            throw new MemoryAccessException("Negative memory address not allowed: 0x" + Long.toHexString(address) + 
-                " (Memory range: 0x0 to 0x" + Long.toHexString(Constants.MEMORY_SIZE - 1) + ")");
-        }
-        if (address >= Constants.MEMORY_SIZE) {
-            throw new MemoryAccessException("Memory address out of bounds: 0x" + Long.toHexString(address) + 
-                " (Memory range: 0x0 to 0x" + Long.toHexString(Constants.MEMORY_SIZE - 1) + ")");
-        }
-        return address;
+    private long validateMemoryAddress(long address, int size) {
+        return memory.checkRange(address, size);
+    }
+
+    /**
+     * Reads the value a load writes back: {@code accessSize} bytes, sign-extended for LDURSW.
+     */
+    private long loadValue(long address, DecodedInstruction decoded) {
+        return decoded.signExtendLoad
+                ? memory.readSigned(address, decoded.accessSize)
+                : memory.read(address, decoded.accessSize);
     }
 }
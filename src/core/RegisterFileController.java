@@ -30,5 +30,19 @@ public class RegisterFileController {
         return storage.getAllRegisters();
     }
 
+    /**
+     * @return A mask of the registers written since the last call (see {@link RegisterStorage#drainDirtyRegisters()}).
+     */
+    public int drainDirtyRegisters() {
+        return storage.drainDirtyRegisters();
+    }
+
+    /**
+     * @return The raw register array used by translated blocks.
+     */
+    long[] registerArray() {
+        return storage.array();
+    }
+
     
 }
\ No newline at end of file
@@ -7,13 +7,28 @@ import java.util.Map;
  * Simulates the LEGv8 register file storage (X0–X31).
  */
 public class RegisterStorage {
+    /**
+     * Extra slot that absorbs writes to XZR in translated code, so X31 always reads as 0.
+     */
+    static final int DISCARD = 32;
+
+    private static final int ALL_REGISTERS = 0x7FFF_FFFF; // X0–X30
+
     private final long[] registers;
+    private int dirtyRegisters; // Bit i set when Xi was written since the last drainDirtyRegisters()
 
     public RegisterStorage() {
-        registers = new long[32]; // X0–X31
+        registers = new long[33]; // X0–X31, plus the DISCARD slot
         registers[31] = 0; // XZR is always 0
     }
 
+    /**
+     * @return The backing array, for the fast path's translated blocks. Index 31 must never be written.
+     */
+    long[] array() {
+        return registers;
+    }
+
     public long read(int index) {
         if (index < 0 || index > 31) {
             throw new IllegalArgumentException("Invalid register index: " + index);
@@ -27,6 +42,7 @@ public class RegisterStorage {
         }
         if (index != 31) { // XZR is read-only
             registers[index] = value;
+            dirtyRegisters |= 1 << index;
         }
     }
 
@@ -35,7 +51,20 @@ public class RegisterStorage {
             registers[i] = 0; 
         }
         registers[31] = 0; // Ensure XZR remains 0
+        dirtyRegisters = ALL_REGISTERS;
+    }
+
+    /**
+     * Returns the registers written (or reset) since the last call and clears the record.
+     * Writes made by translated blocks through {@link #array()} are not tracked.
+     * @return A mask with bit i set if Xi may have changed.
+     */
+    public int drainDirtyRegisters() {
+        int dirty = dirtyRegisters;
+        dirtyRegisters = 0;
+        return dirty;
     }
+
     /**
      * Retrieves a snapshot of all register values.
      * @return A Map where the key is the register number (0-31) and the value is its 64-bit content.
@@ -0,0 +1,130 @@
+package core;
+
+import java.time.Duration;
+
+/**
+ * Limits and settings for {@link CPUSimulator#run(RunOptions)}: an instruction budget, a wall-clock
+ * timeout, a cancellation token, how often the last two are checked, and whether to execute on the
+ * functional fast path or through micro-steps. Instances are immutable; create them with {@link #builder()}.
+ */
+public final class RunOptions {
+    public static final int DEFAULT_CHECK_INTERVAL = 4096;
+
+    /**
+     * No limits, on the fast path.
+     */
+    public static final RunOptions UNLIMITED = builder().build();
+
+    private final long maxInstructions;
+    private final Duration timeout;
+    private final CancellationToken cancellationToken;
+    private final int checkInterval;
+    private final boolean microSteps;
+
+    private RunOptions(Builder builder) {
+        this.maxInstructions = builder.maxInstructions;
+        this.timeout = builder.timeout;
+        this.cancellationToken = builder.cancellationToken;
+        this.checkInterval = builder.checkInterval;
+        this.microSteps = builder.microSteps;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return A builder initialized with these options.
+     */
+    public Builder toBuilder() {
+        return builder()
+                .setMaxInstructions(maxInstructions)
+                .setTimeout(timeout)
+                .setCancellationToken(cancellationToken)
+                .setCheckInterval(checkInterval)
+                .setMicroSteps(microSteps);
+    }
+
+    /**
+     * @return The maximum number of instructions to execute ({@code Long.MAX_VALUE} if unlimited).
+     */
+    public long getMaxInstructions() { return maxInstructions; }
+
+    /**
+     * @return The wall-clock time allowed for the run, or null if unlimited.
+     */
+    public Duration getTimeout() { return timeout; }
+
+    /**
+     * @return The token that cancels the run, or null.
+     */
+    public CancellationToken getCancellationToken() { return cancellationToken; }
+
+    /**
+     * @return The number of instructions executed between checks of the timeout and the cancellation token.
+     */
+    public int getCheckInterval() { return checkInterval; }
+
+    /**
+     * @return True to execute through micro-steps (with history), false for the fast path.
+     */
+    public boolean isMicroSteps() { return microSteps; }
+
+    @Override
+    public String toString() {
+        return String.format("RunOptions[maxInstructions=%d, timeout=%s, cancellable=%b, checkInterval=%d, microSteps=%b]",
+                maxInstructions, timeout, cancellationToken != null, checkInterval, microSteps);
+    }
+
+    /**
+     * Builder for {@link RunOptions}. Every setting defaults to unlimited, on the fast path.
+     */
+    public static final class Builder {
+        private long maxInstructions = Long.MAX_VALUE;
+        private Duration timeout;
+        private CancellationToken cancellationToken;
+        private int checkInterval = DEFAULT_CHECK_INTERVAL;
+        private boolean microSteps;
+
+        private Builder() {
+        }
+
+        public Builder setMaxInstructions(long maxInstructions) {
+            if (maxInstructions < 0) {
+                throw new IllegalArgumentException("Instruction budget cannot be negative: " + maxInstructions);
+            }
+            this.maxInstructions = maxInstructions;
+            return this;
+        }
+
+        public Builder setTimeout(Duration timeout) {
+            if (timeout != null && timeout.isNegative()) {
+                throw new IllegalArgumentException("Timeout cannot be negative: " + timeout);
+            }
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder setCancellationToken(CancellationToken cancellationToken) {
+            this.cancellationToken = cancellationToken;
+            return this;
+        }
+
+        public Builder setCheckInterval(int checkInterval) {
+            if (checkInterval <= 0) {
+                throw new IllegalArgumentException("Check interval must be positive: " + checkInterval);
+            }
+            this.checkInterval = checkInterval;
+            return this;
+        }
+
+        public Builder setMicroSteps(boolean microSteps) {
+            this.microSteps = microSteps;
+            return this;
+        }
+
+        public RunOptions build() {
+            return new RunOptions(this);
+        }
+    }
+}
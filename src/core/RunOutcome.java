@@ -0,0 +1,68 @@
+package core;
+
+import java.time.Duration;
+
+/**
+ * The result of {@link CPUSimulator#run(RunOptions)}: why the run stopped, how many instructions it
+ * executed, how long it took, and the fault that stopped it, if any.
+ */
+public final class RunOutcome {
+
+    /**
+     * Why a run stopped.
+     */
+    public enum Status {
+        COMPLETED,        // The program ran off its end
+        BUDGET_EXCEEDED,  // The instruction budget or the timeout ran out
+        CANCELLED,        // The cancellation token was cancelled
+        FAULTED           // An instruction threw, e.g. a memory access out of bounds
+    }
+
+    private final Status status;
+    private final long instructionCount;
+    private final Duration elapsed;
+    private final int pc;
+    private final String message;
+    private final RuntimeException fault;
+
+    RunOutcome(Status status, long instructionCount, Duration elapsed, int pc, String message, RuntimeException fault) {
+        this.status = status;
+        this.instructionCount = instructionCount;
+        this.elapsed = elapsed;
+        this.pc = pc;
+        this.message = message;
+        this.fault = fault;
+    }
+
+    public Status getStatus() { return status; }
+
+    /**
+     * @return The number of instructions executed by the run.
+     */
+    public long getInstructionCount() { return instructionCount; }
+
+    public Duration getElapsed() { return elapsed; }
+
+    /**
+     * @return The PC when the run stopped; for a fault, the faulting instruction.
+     */
+    public int getPc() { return pc; }
+
+    /**
+     * @return A short description of why the run stopped.
+     */
+    public String getMessage() { return message; }
+
+    /**
+     * @return The exception thrown by the faulting instruction, or null unless the status is FAULTED.
+     */
+    public RuntimeException getFault() { return fault; }
+
+    public boolean isCompleted() { return status == Status.COMPLETED; }
+
+    @Override
+    public String toString() {
+        return String.format("RunOutcome[status=%s, instructions=%d, elapsed=%dms, pc=%d, message=%s]",
+                status, instructionCount, elapsed.toMillis(), pc, message);
+    }
+}
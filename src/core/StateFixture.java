@@ -0,0 +1,170 @@
+package core;
+
+import util.Constants;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A partial machine state: register values, 64-bit memory words and optionally the PC. Used both as the
+ * initial state of a run (applied after the program is loaded) and as the expected state it is checked against.
+ * <p>
+ * The text form has one assignment per line; blank lines and lines starting with {@code #} or {@code //} are ignored:
+ * <pre>
+ * X1 = 5
+ * X2 = 0x1000
+ * [0x1000] = -42
+ * PC = 12
+ * </pre>
+ * Values are decimal (optionally negative) or hexadecimal with a {@code 0x} prefix (up to 64 unsigned bits).
+ * Memory addresses are byte addresses of 8-byte words.
+ */
+public final class StateFixture {
+    public static final StateFixture EMPTY = new StateFixture(Map.of(), Map.of(), -1);
+
+    private final Map<Integer, Long> registers;
+    private final Map<Long, Long> memoryWords;
+    private final int pc;
+
+    /**
+     * @param registers Register number to value. XZR (31) cannot be set.
+     * @param memoryWords Byte address to 64-bit word.
+     * @param pc The PC, or -1 if unspecified.
+     */
+    public StateFixture(Map<Integer, Long> registers, Map<Long, Long> memoryWords, int pc) {
+        for (int register : registers.keySet()) {
+            if (register < 0 || register >= Constants.ZERO_REGISTER) {
+                throw new IllegalArgumentException("Invalid register in fixture: X" + register);
+            }
+        }
+        this.registers = Collections.unmodifiableMap(new TreeMap<>(registers));
+        this.memoryWords = Collections.unmodifiableMap(new TreeMap<>(memoryWords));
+        this.pc = pc;
+    }
+
+    /**
+     * Reads a fixture file.
+     * @param file The file.
+     * @return The fixture.
+     * @throws IOException if the file cannot be read.
+     * @throws IllegalArgumentException if a line is malformed.
+     */
+    public static StateFixture read(Path file) throws IOException {
+        return parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Parses the text form of a fixture.
+     * @param lines The lines.
+     * @return The fixture.
+     * @throws IllegalArgumentException if a line is malformed, with its line number.
+     */
+    public static StateFixture parse(List<String> lines) {
+        Map<Integer, Long> registers = new TreeMap<>();
+        Map<Long, Long> memoryWords = new TreeMap<>();
+        int pc = -1;
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith("//")) continue;
+            int equals = line.indexOf('=');
+            if (equals < 0) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": expected <target> = <value>: " + line);
+            }
+            String target = line.substring(0, equals).trim().toUpperCase();
+            try {
+                long value = parseValue(line.substring(equals + 1).trim());
+                if (target.equals("PC")) {
+                    pc = Math.toIntExact(value);
+                } else if (target.startsWith("[") && target.endsWith("]")) {
+                    memoryWords.put(parseValue(target.substring(1, target.length() - 1).trim()), value);
+                } else if (target.startsWith("X")) {
+                    int register = Integer.parseInt(target.substring(1));
+                    if (register < 0 || register >= Constants.ZERO_REGISTER) {
+                        throw new IllegalArgumentException("invalid register " + target);
+                    }
+                    registers.put(register, value);
+                } else {
+                    throw new IllegalArgumentException("unknown target " + target);
+                }
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                throw new IllegalArgumentException("Line " + (i + 1) + ": " + e.getMessage() + ": " + line, e);
+            }
+        }
+        return new StateFixture(registers, memoryWords, pc);
+    }
+
+    /**
+     * Parses a decimal or {@code 0x} hexadecimal value. Hexadecimal values may use all 64 bits.
+     */
+    static long parseValue(String text) {
+        String value = text.replace("_", "");
+        boolean negative = value.startsWith("-");
+        String digits = negative ? value.substring(1) : value;
+        if (digits.startsWith("0x") || digits.startsWith("0X")) {
+            long parsed = Long.parseUnsignedLong(digits.substring(2), 16);
+            return negative ? -parsed : parsed;
+        }
+        return Long.parseLong(value);
+    }
+
+    /**
+     * Writes this state into a simulator. Call after loading the program, since loading resets the machine.
+     * @param simulator The simulator.
+     */
+    public void applyTo(CPUSimulator simulator) {
+        registers.forEach((register, value) -> simulator.getRegisterFile().writeRegister(register, value, true));
+        memoryWords.forEach((address, value) -> simulator.getMemory().write(address, value, 8));
+        if (pc >= 0) {
+            simulator.setPc(pc);
+        }
+    }
+
+    /**
+     * Compares a simulator against this state. Only the registers, words and PC given here are checked.
+     * @param simulator The simulator.
+     * @return One description per differing value, e.g. "X1: expected 5, actual 4"; empty if all match.
+     */
+    public List<String> mismatches(CPUSimulator simulator) {
+        List<String> mismatches = new ArrayList<>();
+        registers.forEach((register, expected) -> {
+            long actual = simulator.getRegisterValue(register);
+            if (actual != expected) {
+                mismatches.add("X" + register + ": expected " + expected + ", actual " + actual);
+            }
+        });
+        memoryWords.forEach((address, expected) -> {
+            long actual = simulator.getMemory().read(address, 8);
+            if (actual != expected) {
+                mismatches.add(String.format("[0x%X]: expected %d, actual %d", address, expected, actual));
+            }
+        });
+        if (pc >= 0 && simulator.getPc() != pc) {
+            mismatches.add("PC: expected " + pc + ", actual " + simulator.getPc());
+        }
+        return mismatches;
+    }
+
+    public Map<Integer, Long> getRegisters() { return registers; }
+    public Map<Long, Long> getMemoryWords() { return memoryWords; }
+
+    /**
+     * @return The PC, or -1 if unspecified.
+     */
+    public int getPc() { return pc; }
+
+    public boolean isEmpty() {
+        return registers.isEmpty() && memoryWords.isEmpty() && pc < 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("StateFixture[registers=%d, memoryWords=%d, pc=%d]", registers.size(), memoryWords.size(), pc);
+    }
+}
@@ -1510,9 +1510,9 @@ public class DatapathPanel extends JPanel implements ExecutionHistoryListener {
     }
     
     @Override
-    public void onStateRecorded(ExecutionState state) {
+    public void onStateRecorded(int index, String stepDescription) {
         // Could be used for logging or updating GUI status
-        System.out.println("State recorded: " + state.getStepDescription());
+        System.out.println("State recorded: " + stepDescription);
     }
     
     @Override
@@ -0,0 +1,71 @@
+package instruction;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * AssembledProgram is the immutable result of assembling a program: the instructions in program order
+ * and the symbol table mapping each label to the index of the instruction it marks.
+ */
+public final class AssembledProgram {
+    private final List<Instruction> instructions;
+    private final Map<String, Integer> symbols;
+    private final List<String> diagnostics;
+
+    /**
+     * Constructor for AssembledProgram.
+     * @param instructions The assembled instructions, in program order.
+     * @param symbols The label to instruction index mapping.
+     */
+    public AssembledProgram(List<Instruction> instructions, Map<String, Integer> symbols) {
+        this(instructions, symbols, List.of());
+    }
+
+    /**
+     * Constructor for AssembledProgram.
+     * @param instructions The assembled instructions, in program order.
+     * @param symbols The label to instruction index mapping.
+     * @param diagnostics The errors reported while assembling, each prefixed with its line and column.
+     */
+    public AssembledProgram(List<Instruction> instructions, Map<String, Integer> symbols, List<String> diagnostics) {
+        this.instructions = List.copyOf(instructions);
+        this.symbols = Collections.unmodifiableMap(new LinkedHashMap<>(symbols));
+        this.diagnostics = List.copyOf(diagnostics);
+    }
+
+    /**
+     * @return The instructions, in program order.
+     */
+    public List<Instruction> getInstructions() {
+        return instructions;
+    }
+
+    /**
+     * @return The symbol table (label to instruction index), in definition order.
+     */
+    public Map<String, Integer> getSymbols() {
+        return symbols;
+    }
+
+    /**
+     * @return The errors reported while assembling (empty if every line assembled).
+     */
+    public List<String> getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * @return The number of instructions in the program.
+     */
+    public int size() {
+        return instructions.size();
+    }
+
+    @Override
+    public String toString() {
+        return "AssembledProgram[instructions=" + instructions.size() + ", symbols=" + symbols.keySet()
+                + ", diagnostics=" + diagnostics.size() + "]";
+    }
+}
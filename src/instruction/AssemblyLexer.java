@@ -0,0 +1,255 @@
+package instruction;
+
+import exceptions.InvalidInstructionException;
+import util.Constants;
+
+/**
+ * AssemblyLexer is a single-pass scanner over one line of LEGv8 assembly.
+ * It reads the operand forms the assembler understands (registers, {@code #imm}, {@code [Xn, #off]},
+ * {@code LSL #s}, labels) directly from the line without splitting or regex matching, and reports
+ * malformed input as an {@link InvalidInstructionException} carrying the line and column.
+ */
+final class AssemblyLexer {
+    private final String line;
+    private final int lineNumber;
+    private int pos;
+
+    /**
+     * Constructor for AssemblyLexer.
+     * @param line The source line.
+     * @param lineNumber The 1-based line number, used in error messages.
+     * @param start The index in the line at which scanning starts.
+     */
+    AssemblyLexer(String line, int lineNumber, int start) {
+        this.line = line;
+        this.lineNumber = lineNumber;
+        this.pos = start;
+    }
+
+    // --- Position ---
+
+    /**
+     * Skips whitespace and returns the index of the next token, for use in error positions.
+     * @return The current index in the line.
+     */
+    int position() {
+        skipWhitespace();
+        return pos;
+    }
+
+    /**
+     * @return True if only whitespace or a trailing comment ({@code //} or {@code ;}) is left.
+     */
+    boolean atEnd() {
+        skipWhitespace();
+        return pos >= line.length()
+                || line.charAt(pos) == ';'
+                || (line.charAt(pos) == '/' && pos + 1 < line.length() && line.charAt(pos + 1) == '/');
+    }
+
+    /**
+     * Requires that nothing but whitespace or a comment is left on the line.
+     */
+    void expectEnd() {
+        if (!atEnd()) {
+            throw error("Unexpected '" + line.charAt(pos) + "'");
+        }
+    }
+
+    // --- Punctuation ---
+
+    /**
+     * Consumes the given character if it is next.
+     * @return True if the character was consumed.
+     */
+    boolean accept(char c) {
+        skipWhitespace();
+        if (pos < line.length() && line.charAt(pos) == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes the given character, or fails if something else is next.
+     */
+    void expect(char c) {
+        if (!accept(c)) {
+            throw error("Expected '" + c + "'" + found());
+        }
+    }
+
+    // --- Tokens ---
+
+    /**
+     * Reads an identifier (mnemonic, label or keyword): a letter, '_' or '.' followed by letters, digits, '_' or '.'.
+     * @return The identifier as written.
+     */
+    String identifier() {
+        skipWhitespace();
+        int start = pos;
+        if (pos < line.length() && isIdentifierStart(line.charAt(pos))) {
+            pos++;
+            while (pos < line.length() && isIdentifierPart(line.charAt(pos))) {
+                pos++;
+            }
+        }
+        if (start == pos) {
+            throw error("Expected identifier" + found());
+        }
+        return line.substring(start, pos);
+    }
+
+    /**
+     * Returns true if an identifier starts at the current position, without consuming it.
+     */
+    boolean atIdentifier() {
+        skipWhitespace();
+        return pos < line.length() && isIdentifierStart(line.charAt(pos));
+    }
+
+    /**
+     * Consumes the given keyword (case-insensitive) if it is next as a whole word.
+     * @return True if the keyword was consumed.
+     */
+    boolean acceptKeyword(String keyword) {
+        skipWhitespace();
+        return acceptKeywordAt(keyword);
+    }
+
+    /**
+     * Reads a register operand: X0-X31 or XZR (case-insensitive).
+     * @return The register number.
+     */
+    int register() {
+        skipWhitespace();
+        int start = pos;
+        if (pos >= line.length() || (line.charAt(pos) != 'X' && line.charAt(pos) != 'x')) {
+            throw error("Expected register" + found());
+        }
+        pos++;
+        if (acceptKeywordAt("ZR")) {
+            return Constants.ZERO_REGISTER;
+        }
+
+        int value = 0;
+        int digits = 0;
+        while (pos < line.length() && isDigit(line.charAt(pos)) && digits < 3) {
+            value = value * 10 + (line.charAt(pos) - '0');
+            pos++;
+            digits++;
+        }
+        if (digits == 0 || (pos < line.length() && isIdentifierPart(line.charAt(pos))) || value >= Constants.NUM_REGISTERS) {
+            pos = start;
+            throw error("Invalid register '" + word(start) + "'");
+        }
+        return value;
+    }
+
+    /**
+     * Reads an immediate operand: '#' followed by an optionally signed decimal or 0x-prefixed hex number.
+     * @return The value of the immediate.
+     */
+    long immediate() {
+        skipWhitespace();
+        if (pos >= line.length() || line.charAt(pos) != '#') {
+            throw error("Expected immediate '#'" + found());
+        }
+        pos++;
+        int start = pos;
+
+        boolean negative = false;
+        if (pos < line.length() && (line.charAt(pos) == '-' || line.charAt(pos) == '+')) {
+            negative = line.charAt(pos) == '-';
+            pos++;
+        }
+
+        int radix = 10;
+        if (pos + 1 < line.length() && line.charAt(pos) == '0' && (line.charAt(pos + 1) == 'x' || line.charAt(pos + 1) == 'X')) {
+            radix = 16;
+            pos += 2;
+        }
+
+        long value = 0;
+        int digits = 0;
+        while (pos < line.length()) {
+            int digit = Character.digit(line.charAt(pos), radix);
+            if (digit < 0) {
+                break;
+            }
+            if (value > (Long.MAX_VALUE - digit) / radix) {
+                pos = start;
+                throw error("Immediate value out of range '" + word(start) + "'");
+            }
+            value = value * radix + digit;
+            pos++;
+            digits++;
+        }
+        if (digits == 0 || (pos < line.length() && isIdentifierPart(line.charAt(pos)))) {
+            pos = start;
+            throw error("Invalid immediate value '#" + word(start) + "'");
+        }
+        return negative ? -value : value;
+    }
+
+    // --- Errors ---
+
+    /**
+     * Builds an exception for an error at the current position.
+     * @param message The error description.
+     * @return The exception, for the caller to throw.
+     */
+    InvalidInstructionException error(String message) {
+        return error(message, pos);
+    }
+
+    /**
+     * Builds an exception for an error at the given index in the line.
+     */
+    InvalidInstructionException error(String message, int index) {
+        return new InvalidInstructionException(String.format("line %d, column %d: %s", lineNumber, index + 1, message));
+    }
+
+    // --- Helpers ---
+
+    private boolean acceptKeywordAt(String keyword) {
+        int end = pos + keyword.length();
+        if (end <= line.length() && line.regionMatches(true, pos, keyword, 0, keyword.length())
+                && (end == line.length() || !isIdentifierPart(line.charAt(end)))) {
+            pos = end;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) {
+            pos++;
+        }
+    }
+
+    private String found() {
+        return atEnd() ? " but reached end of line" : " but found '" + line.charAt(pos) + "'";
+    }
+
+    private String word(int start) {
+        int end = start;
+        while (end < line.length() && line.charAt(end) != ',' && line.charAt(end) != ']' && !Character.isWhitespace(line.charAt(end))) {
+            end++;
+        }
+        return line.substring(start, end);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || c == '_' || c == '.';
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c);
+    }
+}
@@ -0,0 +1,180 @@
+package instruction;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * BatchAssembler assembles many independent source files in parallel on a {@link ForkJoinPool}.
+ * All files share one {@link InstructionFactory}, which is safe because assembly keeps its label state per call.
+ */
+public class BatchAssembler {
+    /**
+     * Default glob for assembly source files in a directory.
+     */
+    public static final String DEFAULT_SOURCE_GLOB = "*.{s,asm}";
+
+    private final InstructionFactory factory;
+    private final ForkJoinPool pool;
+
+    /**
+     * The outcome of assembling one file.
+     */
+    public static final class Result {
+        private final Path source;
+        private final AssembledProgram program;
+        private final List<String> diagnostics;
+
+        Result(Path source, AssembledProgram program, List<String> diagnostics) {
+            this.source = source;
+            this.program = program;
+            this.diagnostics = List.copyOf(diagnostics);
+        }
+
+        /**
+         * @return The source file.
+         */
+        public Path getSource() {
+            return source;
+        }
+
+        /**
+         * @return The assembled program, or null if the file could not be read.
+         */
+        public AssembledProgram getProgram() {
+            return program;
+        }
+
+        /**
+         * @return The errors for this file: read failures and assembly diagnostics with line and column.
+         */
+        public List<String> getDiagnostics() {
+            return diagnostics;
+        }
+
+        /**
+         * @return True if the file was read and every line assembled.
+         */
+        public boolean isSuccessful() {
+            return program != null && diagnostics.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return source + ": " + (isSuccessful()
+                    ? program.size() + " instruction(s)"
+                    : diagnostics.size() + " error(s)");
+        }
+    }
+
+    /**
+     * Constructor for BatchAssembler using the common fork-join pool.
+     * @param factory The factory shared by all assembly tasks.
+     */
+    public BatchAssembler(InstructionFactory factory) {
+        this(factory, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for BatchAssembler.
+     * @param factory The factory shared by all assembly tasks.
+     * @param pool The pool the tasks run on.
+     */
+    public BatchAssembler(InstructionFactory factory, ForkJoinPool pool) {
+        this.factory = factory;
+        this.pool = pool;
+    }
+
+    /**
+     * Assembles every file in a directory matching {@link #DEFAULT_SOURCE_GLOB}.
+     * @param directory The directory to scan (not recursive).
+     * @return One result per file, sorted by file name.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public List<Result> assembleDirectory(Path directory) throws IOException {
+        return assembleDirectory(directory, DEFAULT_SOURCE_GLOB);
+    }
+
+    /**
+     * Assembles every file in a directory matching the given glob.
+     * @param directory The directory to scan (not recursive).
+     * @param glob The file name glob, e.g. {@code "*.s"}.
+     * @return One result per file, sorted by file name.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public List<Result> assembleDirectory(Path directory, String glob) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        Collections.sort(files);
+        return assembleFiles(files);
+    }
+
+    /**
+     * Assembles the given files in parallel.
+     * @param files The source files.
+     * @return One result per file, in the same order as {@code files}.
+     */
+    public List<Result> assembleFiles(List<Path> files) {
+        return pool.invoke(new AssembleTask(files, 0, files.size()));
+    }
+
+    /**
+     * Assembles one file, turning a read failure into a diagnostic.
+     */
+    private Result assembleFile(Path file) {
+        String[] lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.UTF_8).toArray(new String[0]);
+        } catch (IOException e) {
+            return new Result(file, null, List.of("Cannot read file: " + e.getMessage()));
+        }
+        AssembledProgram program = factory.assemble(lines);
+        return new Result(file, program, program.getDiagnostics());
+    }
+
+    /**
+     * Splits a range of files in half until a single file remains, then assembles it.
+     */
+    private final class AssembleTask extends RecursiveTask<List<Result>> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Path> files;
+        private final int from;
+        private final int to;
+
+        AssembleTask(List<Path> files, int from, int to) {
+            this.files = files;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<Result> compute() {
+            if (to - from <= 1) {
+                return from < to ? List.of(assembleFile(files.get(from))) : List.of();
+            }
+            int mid = (from + to) >>> 1;
+            AssembleTask left = new AssembleTask(files, from, mid);
+            left.fork();
+            List<Result> right = new AssembleTask(files, mid, to).compute();
+
+            List<Result> results = new ArrayList<>(to - from);
+            results.addAll(left.join());
+            results.addAll(right);
+            return results;
+        }
+    }
+}
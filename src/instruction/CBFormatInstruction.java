@@ -0,0 +1,90 @@
+package instruction;
+
+/**
+ * CBFormatInstruction is a class that represents a conditional branch format instruction in the LEGv8 architecture
+ * (CBZ, CBNZ and B.cond). It extends the Instruction class and provides methods to disassemble the instruction
+ * and extract its components.
+ */
+public class CBFormatInstruction extends Instruction {
+    /**
+     * B.cond condition names, indexed by the 4-bit condition code.
+     */
+    private static final String[] CONDITION_NAMES = {
+        "EQ", "NE", "HS", "LO", "MI", "PL", "VS", "VC",
+        "HI", "LS", "GE", "LT", "GT", "LE", "AL", "NV"
+    };
+
+    // --- Constructor ---
+    /**
+     * Constructor for CBFormatInstruction.
+     * @param word The 32-bit instruction word.
+     * @param definition The InstructionDefinition for this instruction.
+     */
+    public CBFormatInstruction(int word, InstructionDefinition definition) {
+        super(word, definition);
+    }
+
+    /**
+     * Constructor for CBFormatInstruction.
+     * @param word The 32-bit instruction word.
+     * @param definition The InstructionDefinition for this instruction.
+     * @param index The instruction's index in its program, used to resolve the branch target.
+     */
+    public CBFormatInstruction(int word, InstructionDefinition definition, int index) {
+        super(word, definition, index);
+    }
+
+    // --- Instruction Methods ---
+    /**
+     * @return The instruction as assembled string.
+     *         The string is formatted as "mnemonic Xt, #offset" for CBZ/CBNZ and "B.cond #offset" for B.cond
+     *         (offset in instructions).
+     */
+    @Override
+    public String disassemble() {
+        if (decoded.operation == DecodedInstruction.Operation.B_COND) {
+            return String.format("%-6s #%d", "B." + conditionName(decoded.rd), decoded.immediate);
+        }
+        return String.format("%-6s X%d, #%d", getDefinition().getMnemonic(), decoded.rd, decoded.immediate);
+    }
+
+    // --- Getters ---
+    @Override
+    public int getImmediate_I() {
+        throw new UnsupportedOperationException("getImmediate_I not supported for CB format");
+    }
+
+    /**
+     * @return The B.cond condition code (the Rt field).
+     */
+    public int getCondition() {
+        return decoded.rd & 0xF;
+    }
+
+    // --- Condition Codes ---
+
+    /**
+     * @param condition A 4-bit condition code.
+     * @return Its name, e.g. "EQ".
+     */
+    public static String conditionName(int condition) {
+        return CONDITION_NAMES[condition & 0xF];
+    }
+
+    /**
+     * Parses a condition name (case-insensitive). CS and CC are accepted as aliases of HS and LO.
+     * @param name The name, e.g. "GE".
+     * @return The 4-bit condition code, or -1 if the name is not a condition.
+     */
+    public static int conditionCode(String name) {
+        String upper = name.toUpperCase();
+        if (upper.equals("CS")) return 2;
+        if (upper.equals("CC")) return 3;
+        for (int i = 0; i < CONDITION_NAMES.length; i++) {
+            if (CONDITION_NAMES[i].equals(upper)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
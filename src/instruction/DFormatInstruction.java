@@ -1,26 +1,18 @@
 package instruction;
 
-import java.util.BitSet;
-
 /**
  * DFormatInstruction is a class that represents a data transfer format instruction in the LEGv8 architecture.
  * It extends the Instruction class and provides methods to disassemble the instruction and extract its components.
  */
 public class DFormatInstruction extends Instruction {
-    private final int rt, rn;
-    private final int address;
-
     // --- Constructor ---
     /**
      * Constructor for DFormatInstruction.
-     * @param bytecode The bytecode of the instruction as a BitSet.
+     * @param word The 32-bit instruction word.
      * @param definition The InstructionDefinition for this instruction.
      */
-    public DFormatInstruction(BitSet bytecode, InstructionDefinition definition) {
-        super(bytecode, definition);
-        this.rt = getRt_D();
-        this.rn = getRn_D();
-        this.address = getAddress_D();
+    public DFormatInstruction(int word, InstructionDefinition definition) {
+        super(word, definition);
     }
 
     // --- Instruction Methods ---
@@ -31,27 +23,11 @@ public class DFormatInstruction extends Instruction {
     @Override
     public String disassemble() {
         String mnemonic = getDefinition().getMnemonic();
-        // Sign-extend address for display (9-bit signed immediate)
-        int displayAddr = (address & 0x100) != 0 ? (address | 0xFFFFFE00) : address;
-        return String.format("%-6s X%d, [X%d, #%d]", mnemonic, rt, rn, displayAddr);
+        // The decoded address is already sign-extended (9-bit signed immediate)
+        return String.format("%-6s X%d, [X%d, #%d]", mnemonic, decoded.rd, decoded.rn, decoded.immediate);
     }
 
     // --- Getters ---
-    @Override
-    public int getRt_D() {
-        return extractBits(bytecode, 0, 4); // Bits 0-4
-    }
-
-    @Override
-    public int getRn_D() {
-        return extractBits(bytecode, 5, 9); // Bits 5-9
-    }
-
-    @Override
-    public int getAddress_D() {
-        return extractBits(bytecode, 12, 20); // Bits 12-20
-    }
-
     @Override
     public int getImmediate_I() {
         return getAddress_D(); // Trả về address như immediate
@@ -0,0 +1,158 @@
+package instruction;
+
+/**
+ * DecodedInstruction holds the pre-decoded form of an instruction: the raw 32-bit word and
+ * its unpacked operand fields in final primitive fields.
+ * It is built once when the Instruction is created, so execution never has to extract bits again.
+ */
+public final class DecodedInstruction {
+
+    /**
+     * The operation performed by an instruction, resolved once from its mnemonic and format.
+     */
+    public enum Operation {
+        ADD, SUB, AND, ORR, EOR,
+        MUL, SMULH, UMULH,
+        SDIV, UDIV,
+        LSL, LSR, ASR,
+        CMP,
+        ADDI, SUBI,
+        LDUR, STUR,
+        MOVZ, MOVK,
+        B, BL, BR,
+        CBZ, CBNZ, B_COND,
+        UNSUPPORTED
+    }
+
+    // --- Fields ---
+    public final int word;
+    public final char format;
+    public final Operation operation;
+    public final boolean regWrite;
+    public final boolean flagWrite;
+
+    public final int rd;        // Rd (R, I, IM), Rt (D, CBZ/CBNZ) or the condition code (B.cond)
+    public final int rn;
+    public final int rm;
+    public final int shamt;
+    public final int shift;     // IM-format hw field (0-3)
+    public final long immediate; // I: 12-bit unsigned, D: sign-extended 9-bit, B: sign-extended 26-bit, CB: sign-extended 19-bit, IM: 16-bit
+    public final int target;     // B, CB: absolute instruction index of the branch target, otherwise -1
+    public final int accessSize;        // D: bytes transferred (1, 2, 4 or 8), otherwise 0
+    public final boolean signExtendLoad; // D: true for LDURSW
+
+
+    // --- Constructor ---
+
+    /**
+     * Decodes the given instruction word using the format of its definition.
+     * @param word The 32-bit instruction word.
+     * @param definition The InstructionDefinition for this instruction.
+     * @param index The instruction's index in its program, used to resolve branch offsets to absolute targets.
+     */
+    DecodedInstruction(int word, InstructionDefinition definition, int index) {
+        this.word = word;
+        this.format = definition.getFormat();
+        this.operation = resolveOperation(definition);
+        this.regWrite = definition.getControlSignals().isRegWrite();
+        this.flagWrite = definition.getControlSignals().isFlagWrite();
+
+        this.rd = word & 0x1F;
+        this.rn = (word >>> 5) & 0x1F;
+        this.rm = (word >>> 16) & 0x1F;
+        this.shamt = (word >>> 10) & 0x3F;
+        this.shift = (word >>> 21) & 0x3;
+
+        switch (format) {
+            case 'I':
+                this.immediate = (word >>> 10) & 0xFFF;
+                break;
+            case 'D':
+                this.immediate = ((word >>> 12) << 23) >> 23; // Sign-extend from 9 bits
+                break;
+            case 'B':
+                this.immediate = (word << 6) >> 6; // Sign-extend from 26 bits
+                break;
+            case 'C':
+                this.immediate = (word << 8) >> 13; // Sign-extend from 19 bits (bits 5-23)
+                break;
+            case 'M':
+                this.immediate = (word >>> 5) & 0xFFFF;
+                break;
+            default:
+                this.immediate = 0;
+        }
+
+        this.target = (format == 'B' || format == 'C') ? index + (int) this.immediate : -1;
+
+        String mnemonic = definition.getMnemonic();
+        this.accessSize = format == 'D' ? accessSizeOf(mnemonic) : 0;
+        this.signExtendLoad = mnemonic.equals("LDURSW");
+    }
+
+
+    // --- Helper Methods ---
+
+    /**
+     * Resolves the operation for a definition, mirroring how each format is executed.
+     * @param definition The InstructionDefinition to resolve.
+     * @return The resolved operation.
+     */
+    private static Operation resolveOperation(InstructionDefinition definition) {
+        String mnemonic = definition.getMnemonic();
+        switch (definition.getFormat()) {
+            case 'R':
+                switch (mnemonic) {
+                    case "SUB": return Operation.SUB;
+                    case "AND": return Operation.AND;
+                    case "ORR": return Operation.ORR;
+                    case "EOR": return Operation.EOR;
+                    case "MUL": return Operation.MUL;
+                    case "SMULH": return Operation.SMULH;
+                    case "UMULH": return Operation.UMULH;
+                    case "SDIV": return Operation.SDIV;
+                    case "UDIV": return Operation.UDIV;
+                    case "LSL": return Operation.LSL;
+                    case "LSR": return Operation.LSR;
+                    case "ASR": return Operation.ASR;
+                    case "CMP": return Operation.CMP;
+                    case "BR": return Operation.BR;
+                    default: return Operation.ADD;
+                }
+            case 'I':
+                return mnemonic.equals("ADDI") ? Operation.ADDI : Operation.SUBI;
+            case 'D':
+                return mnemonic.startsWith("L") ? Operation.LDUR : Operation.STUR;
+            case 'M':
+                return mnemonic.equals("MOVK") ? Operation.MOVK : Operation.MOVZ;
+            case 'B':
+                return mnemonic.equals("BL") ? Operation.BL : Operation.B;
+            case 'C':
+                switch (mnemonic) {
+                    case "CBZ": return Operation.CBZ;
+                    case "CBNZ": return Operation.CBNZ;
+                    default: return Operation.B_COND;
+                }
+            default:
+                return Operation.UNSUPPORTED;
+        }
+    }
+
+    /**
+     * Resolves the transfer width of a load/store from its mnemonic suffix.
+     * @param mnemonic The D-format mnemonic (LDUR, LDURB, LDURH, LDURSW, STUR, STURB, STURH, STURW).
+     * @return The access size in bytes.
+     */
+    private static int accessSizeOf(String mnemonic) {
+        if (mnemonic.endsWith("B")) return 1;
+        if (mnemonic.endsWith("H")) return 2;
+        if (mnemonic.endsWith("W")) return 4; // LDURSW, STURW
+        return 8;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DecodedInstruction[word=0x%08X, op=%s, rd=%d, rn=%d, rm=%d, shamt=%d, imm=%d, target=%d]",
+                word, operation, rd, rn, rm, shamt, immediate, target);
+    }
+}
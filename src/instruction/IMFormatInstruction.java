@@ -1,34 +1,25 @@
 package instruction;
-import java.util.BitSet;
 
 /**
  * Represents an IM-format instruction in the LEGv8 architecture (e.g., MOVZ).
  */
 public class IMFormatInstruction extends Instruction {
-    private final int rd;
-    private final int rn; // Not used in MOVZ, but included for consistency with other IM instructions
-    private final int immediate;
-    private final int shift;
-
     /**
      * Constructor for IMFormatInstruction.
-     * @param bytecode The bytecode of the instruction as a BitSet.
+     * @param word The 32-bit instruction word.
      * @param definition The InstructionDefinition for this instruction.
      */
-    public IMFormatInstruction(BitSet bytecode, InstructionDefinition definition) {
-        super(bytecode, definition);
-        this.rd = getRd_IM();
-        this.rn = getRn_IM();
-        this.immediate = getImmediate_IM();
-        this.shift = getShift_IM();
+    public IMFormatInstruction(int word, InstructionDefinition definition) {
+        super(word, definition);
     }
 
     /**
      * Gets the source register (Rn) for this instruction.
      * @return The source register number (0-31).
      */
+    // Not used in MOVZ, but included for consistency with other IM instructions
     public int getRn_IM() {
-        return rn;
+        return decoded.rn;
     }
 
     /**
@@ -38,6 +29,6 @@ public class IMFormatInstruction extends Instruction {
     @Override
     public String disassemble() {
         return String.format("%-6s X%d, #%d, LSL #%d", 
-                            definition.getMnemonic(), rd, immediate, shift * 16);
+                            definition.getMnemonic(), decoded.rd, decoded.immediate, decoded.shift * 16);
     }
 }
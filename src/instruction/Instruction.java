@@ -6,42 +6,56 @@ import java.util.Objects;
 
 /**
  * Instruction is an abstract class that represents a generic instruction in the LEGv8 architecture.
- * It provides methods to manipulate and extract information from the instruction's bytecode.
+ * It provides methods to manipulate and extract information from the instruction's 32-bit word.
  */
 // Note: This class is not intended to be instantiated directly.
 // Instead, it should be extended by specific instruction classes (e.g., RFormatInstruction, IFormatInstruction, etc.).
 public abstract class Instruction {
     // --- Fields ---
-    protected final BitSet bytecode;
+    protected final int word;
     protected final InstructionDefinition definition;
+    protected final DecodedInstruction decoded;
+
 
-    
     // --- Constructor ---
 
     /**
      * Constructor for the Instruction class.
-     * @param bytecode The bytecode of the instruction as a BitSet.
+     * @param word The 32-bit instruction word.
      * @param definition The InstructionDefinition for this instruction.
      */
-    protected Instruction(BitSet bytecode, InstructionDefinition definition) { 
-        if (bytecode.length() > 32) {
-            System.err.printf("%sWarning: Bytecode provided to Instruction constructor has length %d (> 32) for %s.\n",
-                                ColoredLog.WARNING, bytecode.length(), definition.getMnemonic());
-        }
-        
-        this.bytecode = (BitSet) Objects.requireNonNull(bytecode, ColoredLog.WARNING + "Bytecode cannot be null.").clone();
+    protected Instruction(int word, InstructionDefinition definition) {
+        this(word, definition, 0);
+    }
+
+    /**
+     * Constructor for the Instruction class.
+     * @param word The 32-bit instruction word.
+     * @param definition The InstructionDefinition for this instruction.
+     * @param index The instruction's index in its program; branch targets are resolved relative to it.
+     */
+    protected Instruction(int word, InstructionDefinition definition, int index) {
+        this.word = word;
         this.definition = Objects.requireNonNull(definition, ColoredLog.WARNING + "InstructionDefinition cannot be null for standard instruction creation.");
+        this.decoded = new DecodedInstruction(word, definition, index);
     }
 
-    
+
     // --- Getters ---
-    
+
+    /**
+     * @return The 32-bit instruction word.
+     */
+    public int getWord() {
+        return word;
+    }
+
     /**
-     * @return The bytecode of the instruction as a BitSet.
-     *         The clone is used to prevent external modification of the original bytecode.
+     * @return A BitSet view of the instruction word, for GUI display.
+     *         A new BitSet is built on every call, so execution code should use {@link #getWord()} instead.
      */
     public BitSet getBytecode() {
-        return (BitSet) bytecode.clone(); 
+        return BitSet.valueOf(new long[] { word & 0xFFFFFFFFL });
     }
 
     /**
@@ -52,107 +66,119 @@ public abstract class Instruction {
         return definition;
     }
 
+    /**
+     * @return The pre-decoded form of this instruction (raw word and operand fields).
+     *         It is built once at construction, so hot execution loops should read from it.
+     */
+    public DecodedInstruction getDecoded() {
+        return decoded;
+    }
+
     // --- Bit Extraction Methods ---
     // R-Format Instruction
-    public int getOpcode_R()    { return extractBits(bytecode, 21, 31); } 
-    public int getRm_R()        { return extractBits(bytecode, 16, 20); } 
-    public int getShamt_R()     { return extractBits(bytecode, 10, 15); } 
-    public int getRn_R()        { return extractBits(bytecode, 5, 9); }   
-    public int getRd_R()        { return extractBits(bytecode, 0, 4); }   
+    public int getOpcode_R()    { return extractBits(word, 21, 31); }
+    public int getRm_R()        { return extractBits(word, 16, 20); }
+    public int getShamt_R()     { return extractBits(word, 10, 15); }
+    public int getRn_R()        { return extractBits(word, 5, 9); }
+    public int getRd_R()        { return extractBits(word, 0, 4); }
 
     // I-Format Instruction
-    public int getOpcode_I()    { return extractBits(bytecode, 22, 31); } 
-    public int getImmediate_I() { return extractBits(bytecode, 10, 21); } 
-    public int getRn_I()        { return extractBits(bytecode, 5, 9); }   
-    public int getRd_I()        { return extractBits(bytecode, 0, 4); }   
+    public int getOpcode_I()    { return extractBits(word, 22, 31); }
+    public int getImmediate_I() { return extractBits(word, 10, 21); }
+    public int getRn_I()        { return extractBits(word, 5, 9); }
+    public int getRd_I()        { return extractBits(word, 0, 4); }
 
     // D-Format Instruction
-    public int getOpcode_D()    { return extractBits(bytecode, 21, 31); } 
-    public int getAddress_D()   { return extractBits(bytecode, 12, 20); } 
-    public int getOp2_D()       { return extractBits(bytecode, 10, 11); } // 2 bits (Unused in LDUR/STUR)
-    public int getRn_D()        { return extractBits(bytecode, 5, 9); }   
-    public int getRt_D()        { return extractBits(bytecode, 0, 4); }   
+    public int getOpcode_D()    { return extractBits(word, 21, 31); }
+    public int getAddress_D()   { return extractBits(word, 12, 20); }
+    public int getOp2_D()       { return extractBits(word, 10, 11); } // 2 bits (Unused in LDUR/STUR)
+    public int getRn_D()        { return extractBits(word, 5, 9); }
+    public int getRt_D()        { return extractBits(word, 0, 4); }
 
     // B-Format Instruction
-    public int getOpcode_B()    { return extractBits(bytecode, 26, 31); } 
-    public int getAddress_B()   { return extractBits(bytecode, 0, 25); }  
+    public int getOpcode_B()    { return extractBits(word, 26, 31); }
+    public int getAddress_B()   { return extractBits(word, 0, 25); }
 
     // CB-Format Instruction
-    public int getOpcode_CB()   { return extractBits(bytecode, 24, 31); } 
-    public int getAddress_CB()  { return extractBits(bytecode, 5, 23); } 
-    public int getRt_CB()       { return extractBits(bytecode, 0, 4); }  // 5 bits (Rt for CBZ/NZ, Cond for B.cond)
+    public int getOpcode_CB()   { return extractBits(word, 24, 31); }
+    public int getAddress_CB()  { return extractBits(word, 5, 23); }
+    public int getRt_CB()       { return extractBits(word, 0, 4); }  // 5 bits (Rt for CBZ/NZ, Cond for B.cond)
 
     // I-Format Immediate Instruction
-    public int getOpcode_IM()   { return extractBits(bytecode, 23, 31); } 
-    public int getShift_IM()    { return extractBits(bytecode, 21, 22); } 
-    public int getImmediate_IM(){ return extractBits(bytecode, 5, 20); } 
-    public int getRd_IM()       { return extractBits(bytecode, 0, 4); }   
+    public int getOpcode_IM()   { return extractBits(word, 23, 31); }
+    public int getShift_IM()    { return extractBits(word, 21, 22); }
+    public int getImmediate_IM(){ return extractBits(word, 5, 20); }
+    public int getRd_IM()       { return extractBits(word, 0, 4); }
 
 
     // --- Bit Manipulation Methods ---
 
     /**
-     * Sets the bits in the specified range of the BitSet to the value provided.
-     * @param bits The BitSet to modify.
+     * Returns the word with the bits in the specified range replaced by the value provided.
+     * @param word The instruction word to modify.
      * @param value The value to set in the specified bit range.
      * @param startBit The starting bit index (inclusive).
      * @param endBit The ending bit index (inclusive).
+     * @return The modified instruction word.
      */
-    protected static void setBits(BitSet bits, int value, int startBit, int endBit) {
+    public static int setBits(int word, int value, int startBit, int endBit) {
         if (startBit < 0 || endBit < startBit || endBit >= 32) {
             System.err.printf("%sWarning: Invalid bit range for setting: %d to %d\n", ColoredLog.WARNING, startBit, endBit);
-            return; 
+            return word;
         }
 
-        int mask = 1;
-        for (int i = startBit; i <= endBit; i++) {
-            bits.set(i, (value & mask) != 0);
-            mask <<= 1;
-        }
+        int mask = (int) ((1L << (endBit - startBit + 1)) - 1) << startBit;
+        return (word & ~mask) | ((value << startBit) & mask);
     }
-    
+
     /**
-     * Extracts a range of bits from the BitSet and returns it as an integer.
-     * @param bits The BitSet to extract bits from.
+     * Extracts a range of bits from the instruction word and returns it as an integer.
+     * @param word The instruction word to extract bits from.
      * @param startBit The starting bit index (inclusive).
      * @param endBit The ending bit index (inclusive).
      * @return The extracted value as an integer.
      */
-    public static int extractBits(BitSet bits, int startBit, int endBit) {
-        if (startBit < 0 || endBit < startBit || endBit >= 32) {      
-            System.err.printf("%sWarning: Invalid bit range requested: %d to %d\n", ColoredLog.WARNING, startBit, endBit);    
+    public static int extractBits(int word, int startBit, int endBit) {
+        if (startBit < 0 || endBit < startBit || endBit >= 32) {
+            System.err.printf("%sWarning: Invalid bit range requested: %d to %d\n", ColoredLog.WARNING, startBit, endBit);
             throw new IllegalArgumentException("Invalid bit range requested: " + startBit + " to " + endBit);
         }
 
-        int value = 0;
-        for (int i = startBit; i <= endBit; i++) {
-            if (bits.get(i)) {
-                value |= (1 << (i - startBit));
-            }
-        }
-        
-        return value;
+        return (int) ((word & 0xFFFFFFFFL) >>> startBit & ((1L << (endBit - startBit + 1)) - 1));
+    }
+
+    /**
+     * Converts a BitSet (bit 0 = least significant bit) to a 32-bit instruction word.
+     * @param bits The BitSet to convert.
+     * @return The instruction word.
+     */
+    public static int toWord(BitSet bits) {
+        long[] longs = bits.toLongArray();
+        return longs.length > 0 ? (int) longs[0] : 0;
+    }
+
+    /**
+     * Formats the instruction word as a binary string.
+     * @param word The instruction word to format.
+     * @return The formatted binary string, grouped in bytes.
+     */
+    public static String formatWord(int word) {
+        String bits = String.format("%32s", Integer.toBinaryString(word)).replace(' ', '0');
+        return bits.substring(0, 8) + ' ' + bits.substring(8, 16) + ' ' + bits.substring(16, 24) + ' ' + bits.substring(24);
     }
 
     /**
      * Formats the BitSet as a binary string.
      * @param bits The BitSet to format.
      * @return The formatted binary string.
-     */    
+     */
     public static String formatBitSet(BitSet bits) {
-        StringBuilder sb = new StringBuilder(35); 
-        for (int i = 31; i >= 0; i--) {
-            sb.append(bits.get(i) ? '1' : '0');
-            if (i > 0 && i % 8 == 0) {
-                sb.append(' '); 
-            }
-        }
-        return sb.toString();
+        return formatWord(toWord(bits));
     }
 
 
     // --- Utility Methods ---
-    
+
     /**
      * Abstract method to disassemble the instruction into a human-readable format.
      * @return The disassembled instruction as a string.
@@ -160,24 +186,17 @@ public abstract class Instruction {
     public abstract String disassemble();
 
     /**
-     * @return A string representation of the instruction, including its bytecode in binary format.
+     * @return A string representation of the instruction, including its word in binary format.
      */
     @Override
     public String toString() {
-        return disassemble() + "\n" + formatBitSet(bytecode);
+        return disassemble() + "\n" + formatWord(word);
     }
 
     /**
      * @return The instruction as a hex string.
      */
     public String getInstructionHex() {
-        BitSet bytecode = getBytecode();
-        int instructionCode = 0;
-        for (int i = 0; i < 32; i++) {
-            if (bytecode.get(i)) {
-                instructionCode |= (1 << i);
-            }
-        }
-        return String.format("0x%08X", instructionCode);
+        return String.format("0x%08X", word);
     }
 }
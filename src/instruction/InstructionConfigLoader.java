@@ -8,33 +8,66 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 
+/**
+ * Loads instruction definitions from the configuration file and serves lookups by opcode, mnemonic and word.
+ * A load builds its tables privately and publishes them as one immutable snapshot, so once loaded the
+ * loader is read-only and can be shared by any number of threads (e.g. parallel assemblers).
+ */
 public class InstructionConfigLoader {
 
     /**
-     * A map that stores instruction definitions based on their opcode ID and format.
-     * The key is the opcode ID, and the value is a map of format characters to InstructionDefinition objects.
+     * Number of entries in the binary dispatch table: one per value of the top 11 bits of an instruction word.
      */
-    private final Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap;
-    
+    public static final int DISPATCH_TABLE_SIZE = 1 << 11;
+
+    /**
+     * An immutable set of lookup tables built by one call to {@link #loadConfig(String)}.
+     */
+    private static final class Definitions {
+        static final Definitions EMPTY = new Definitions(Map.of(), Map.of(), new InstructionDefinition[DISPATCH_TABLE_SIZE]);
+
+        /**
+         * Instruction definitions by opcode ID, then by format character.
+         */
+        final Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap;
+
+        /**
+         * Instruction definitions by mnemonic.
+         */
+        final Map<String, InstructionDefinition> mnemonicMap;
+
+        /**
+         * A flat dispatch table indexed by the top 11 bits of an instruction word.
+         * Precomputed at load time so that binary decoding is a single array index.
+         */
+        final InstructionDefinition[] dispatchTable;
+
+        Definitions(Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap,
+                    Map<String, InstructionDefinition> mnemonicMap,
+                    InstructionDefinition[] dispatchTable) {
+            this.detailedDefinitionMap = detailedDefinitionMap;
+            this.mnemonicMap = mnemonicMap;
+            this.dispatchTable = dispatchTable;
+        }
+    }
+
     /**
-     * A map that stores instruction definitions based on their mnemonic.
-     * The key is the mnemonic string, and the value is the corresponding InstructionDefinition object.
+     * The currently published definitions. Replaced as a whole, never modified.
      */
-    private final Map<String, InstructionDefinition> mnemonicMap;
+    private volatile Definitions definitions = Definitions.EMPTY;
     
     // --- Constructor ---
 
     /**
      * Default constructor for InstructionConfigLoader.
-     * Initializes the detailedDefinitionMap and mnemonicMap.
+     * No definitions are available until {@link #loadConfig(String)} succeeds.
      */
     public InstructionConfigLoader() {
-        this.detailedDefinitionMap = new HashMap<>();
-        this.mnemonicMap = new HashMap<>();
     }
 
 
@@ -47,25 +80,33 @@ public class InstructionConfigLoader {
      * @return The InstructionDefinition object corresponding to the given opcode ID and format, or null if not found.
      */
     public InstructionDefinition getDefinition(int opcodeId, char format) {
-        Map<Character, InstructionDefinition> formatMap = detailedDefinitionMap.get(opcodeId);
-        return (formatMap != null) ? formatMap.get(format) : null;
+        return lookup(definitions.detailedDefinitionMap, opcodeId, format);
     }
     
+    /**
+     * Retrieves the InstructionDefinition for a 32-bit instruction word using the dispatch table.
+     * @param word The instruction word to decode.
+     * @return The InstructionDefinition whose opcode matches the word, or null if none does.
+     */
+    public InstructionDefinition getDefinitionForWord(int word) {
+        return definitions.dispatchTable[word >>> 21];
+    }
+
     /**
      * Retrieves the InstructionDefinition based on the mnemonic.
      * @param mnemonic The mnemonic string of the instruction.
      * @return The InstructionDefinition object corresponding to the given mnemonic, or null if not found.
      */
     public InstructionDefinition getDefinitionByMnemonic(String mnemonic) {
-        return mnemonicMap.get(mnemonic.toUpperCase());
+        return definitions.mnemonicMap.get(mnemonic.toUpperCase());
     }
     
     /**
-     * Retrieves the detailed definition map.
-     * @return The map of opcode IDs to format maps and their corresponding InstructionDefinition objects.
+     * Retrieves the mnemonic map.
+     * @return An unmodifiable map of mnemonics to their InstructionDefinition objects.
      */
     public Map<String, InstructionDefinition> getMnemonicMap() {
-        return mnemonicMap; 
+        return definitions.mnemonicMap; 
     }
     
     /**
@@ -92,8 +133,8 @@ public class InstructionConfigLoader {
      * @return true if the configuration was loaded successfully, false otherwise.
      */
     public boolean loadConfig(String resourcePath) {
-        detailedDefinitionMap.clear();
-        mnemonicMap.clear();
+        Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap = new HashMap<>();
+        Map<String, InstructionDefinition> mnemonicMap = new HashMap<>();
         System.out.println(ColoredLog.PENDING + "Loading instruction configuration from resource: " + resourcePath);
 
         try (InputStream is = new FileInputStream(resourcePath)) {
@@ -172,8 +213,16 @@ public class InstructionConfigLoader {
                     }
                 } 
                 
+                Map<Integer, Map<Character, InstructionDefinition>> frozenDefinitionMap = new HashMap<>();
+                detailedDefinitionMap.forEach((opcodeId, formatMap) -> frozenDefinitionMap.put(opcodeId, Map.copyOf(formatMap)));
+                definitions = new Definitions(
+                    Collections.unmodifiableMap(frozenDefinitionMap),
+                    Collections.unmodifiableMap(mnemonicMap),
+                    buildDispatchTable(frozenDefinitionMap)
+                );
+
                 System.out.printf("%sInstruction configuration loaded. %d unique mnemonics, %d opcode/format definitions.\n", 
-                                                            ColoredLog.SUCCESS, mnemonicMap.size(), countTotalDefinitions());
+                                                            ColoredLog.SUCCESS, mnemonicMap.size(), countTotalDefinitions(detailedDefinitionMap));
 
                 detailedDefinitionMap.forEach((opcodeId, formatMap) -> {
                     System.out.printf("  Opcode ID %d: ", opcodeId);
@@ -266,11 +315,36 @@ public class InstructionConfigLoader {
         }
     }
 
+    private static InstructionDefinition lookup(Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap,
+                                                int opcodeId, char format) {
+        Map<Character, InstructionDefinition> formatMap = detailedDefinitionMap.get(opcodeId);
+        return (formatMap != null) ? formatMap.get(format) : null;
+    }
+
+    /**
+     * Builds the dispatch table from the detailed definition map.
+     * Each entry resolves the top 11 bits of a word the same way a prefix search would:
+     * R and D formats on 11 bits, then I on 10, IM on 9, CB on 8 and B on 6 bits.
+     */
+    private static InstructionDefinition[] buildDispatchTable(Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap) {
+        InstructionDefinition[] dispatchTable = new InstructionDefinition[DISPATCH_TABLE_SIZE];
+        for (int top11 = 0; top11 < DISPATCH_TABLE_SIZE; top11++) {
+            InstructionDefinition definition = lookup(detailedDefinitionMap, top11, 'R');
+            if (definition == null) definition = lookup(detailedDefinitionMap, top11, 'D');
+            if (definition == null) definition = lookup(detailedDefinitionMap, top11 >>> 1, 'I');
+            if (definition == null) definition = lookup(detailedDefinitionMap, top11 >>> 2, 'M');
+            if (definition == null) definition = lookup(detailedDefinitionMap, top11 >>> 3, 'C');
+            if (definition == null) definition = lookup(detailedDefinitionMap, top11 >>> 5, 'B');
+            dispatchTable[top11] = definition;
+        }
+        return dispatchTable;
+    }
+
     /**
      * Counts the total number of instruction definitions loaded.
      * @return The total count of instruction definitions.
      */
-    private int countTotalDefinitions() {
+    private static int countTotalDefinitions(Map<Integer, Map<Character, InstructionDefinition>> detailedDefinitionMap) {
         int count = 0;
         for (Map<Character, InstructionDefinition> formatMap : detailedDefinitionMap.values()) {
             count += formatMap.size();
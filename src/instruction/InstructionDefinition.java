@@ -2,7 +2,6 @@ package instruction;
 import util.ControlSignals;
 
 import java.util.Objects;
-import java.util.BitSet;
 
 /**
  * Represents the definition of an instruction in the LEGv8 architecture.
@@ -45,17 +44,12 @@ public class InstructionDefinition {
 
     /**
      * Checks if the provided opcode matches this instruction's opcode.
-     * @param bytecode The instruction bytecode to check.
+     * @param word The 32-bit instruction word to check.
      * @return True if the opcode matches, false otherwise.
      */
-    public boolean matchesOpcode(BitSet bytecode) {
+    public boolean matchesOpcode(int word) {
         int opcodeLength = opcodeId.length();
-        int extractedOpcode = Instruction.extractBits(bytecode, 31 - opcodeLength + 1, 31);
-        String extractedOpcodeStr = Integer.toBinaryString(extractedOpcode);
-        while (extractedOpcodeStr.length() < opcodeLength) {
-            extractedOpcodeStr = "0" + extractedOpcodeStr;
-        }
-        return opcodeId.equals(extractedOpcodeStr);
+        return (word >>> (32 - opcodeLength)) == Integer.parseInt(opcodeId, 2);
     }
 
     public String getInstructionName() {
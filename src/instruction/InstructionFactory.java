@@ -1,518 +1,532 @@
 package instruction;
 
+import exceptions.InvalidInstructionException;
 import util.*;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.BitSet;
-import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Factory class for creating Instruction objects from bytecode or assembly lines.
+ * Assembly keeps no per-program state in the factory and the cache is synchronized,
+ * so a single factory can be shared by concurrent assemblers.
  */
 public class InstructionFactory {
     private final InstructionConfigLoader configLoader;
 
+    // Assembly cache: normalized source hash -> assembled program, in LRU order
+    private final Map<String, AssembledProgram> assemblyCache = new LinkedHashMap<>(16, 0.75f, true);
+    private int assemblyCacheCapacity = Constants.DEFAULT_ASSEMBLY_CACHE_SIZE;
+    private long assemblyCacheHits;
+    private long assemblyCacheMisses;
+
     public InstructionFactory(InstructionConfigLoader configLoader) {
         this.configLoader = configLoader;
     }
 
     public Instruction createFromBytecode(BitSet bytecode) {
-        int opcode11 = Instruction.extractBits(bytecode, 21, 31);
-        int opcode10 = Instruction.extractBits(bytecode, 22, 31);
-        int opcode9 = Instruction.extractBits(bytecode, 23, 31);
-        int opcode8 = Instruction.extractBits(bytecode, 24, 31);
-        int opcode6 = Instruction.extractBits(bytecode, 26, 31);
-
-        InstructionDefinition definition = null;
-        char format = '?';
-
-        if ((definition = configLoader.getDefinition(opcode11, 'R')) != null) {
-            format = 'R';
-        } else if ((definition = configLoader.getDefinition(opcode11, 'D')) != null) {
-            format = 'D';
-        } else if ((definition = configLoader.getDefinition(opcode10, 'I')) != null) {
-            format = 'I';
-        } else if ((definition = configLoader.getDefinition(opcode9, 'M')) != null) {
-            format = 'M';
-        } else if ((definition = configLoader.getDefinition(opcode8, 'C')) != null) {
-            format = 'C';
-        } else if ((definition = configLoader.getDefinition(opcode6, 'B')) != null) {
-            format = 'B';
-        }
+        return createFromBytecode(Instruction.toWord(bytecode));
+    }
+
+    public Instruction createFromBytecode(int word) {
+        return createFromBytecode(word, 0);
+    }
+
+    /**
+     * Decodes one instruction word.
+     * @param word The 32-bit instruction word.
+     * @param index The instruction's index in its program; branch offsets are resolved relative to it.
+     * @return The instruction, or null if the word matches no definition.
+     */
+    public Instruction createFromBytecode(int word, int index) {
+        InstructionDefinition definition = configLoader.getDefinitionForWord(word);
 
         if (definition == null) {
             System.err.printf("%sNo instruction definition found for bytecode: %s\n",
-                    ColoredLog.WARNING, Instruction.formatBitSet(bytecode));
+                    ColoredLog.WARNING, Instruction.formatWord(word));
             return null;
         }
 
+        char format = definition.getFormat();
         switch (format) {
             case 'R':
-                return new RFormatInstruction(bytecode, definition);
+                return new RFormatInstruction(word, definition);
             case 'I':
-                return new IFormatInstruction(bytecode, definition);
+                return new IFormatInstruction(word, definition);
             case 'D':
-                return new DFormatInstruction(bytecode, definition);
+                return new DFormatInstruction(word, definition);
             case 'M':
-                return new IMFormatInstruction(bytecode, definition);
+                return new IMFormatInstruction(word, definition);
             case 'B':
-                return new BFormatInstruction(bytecode, definition);
+                return new BFormatInstruction(word, definition, index);
+            case 'C':
+                return new CBFormatInstruction(word, definition, index);
             default:
                 System.err.printf("%sUnsupported instruction format: %c\n", ColoredLog.WARNING, format);
                 return null;
         }
     }
 
+    /**
+     * Decodes a flat program image of little-endian 32-bit instruction words.
+     * Words are read straight from the buffer (which may be memory-mapped) from its position to its limit;
+     * the buffer's position and byte order are left untouched.
+     * @param image The program image. Its remaining length must be a multiple of 4 bytes.
+     * @return The decoded instructions, one per word, in program order.
+     * @throws InvalidInstructionException if the image length is not word-aligned or a word cannot be decoded.
+     */
+    public List<Instruction> createFromImage(ByteBuffer image) {
+        ByteBuffer words = image.slice().order(ByteOrder.LITTLE_ENDIAN);
+        if (words.remaining() % 4 != 0) {
+            throw new InvalidInstructionException("Program image length is not a multiple of 4 bytes: " + words.remaining());
+        }
+
+        List<Instruction> instructions = new ArrayList<>(words.remaining() / 4);
+        for (int offset = 0; offset < words.limit(); offset += 4) {
+            int word = words.getInt(offset);
+            Instruction instruction = createFromBytecode(word, offset / 4);
+            if (instruction == null) {
+                throw new InvalidInstructionException(String.format("Undecodable instruction word 0x%08X at byte offset %d", word, offset));
+            }
+            instructions.add(instruction);
+        }
+        return instructions;
+    }
+
+    /**
+     * Assembles a single line. Branches to labels cannot be resolved here; use {@link #createFromAssemblyLines(String[])}.
+     * @param assemblyLine The assembly line.
+     * @return The instruction, or null if the line is invalid.
+     */
     public Instruction createFromAssembly(String assemblyLine) {
         if (assemblyLine == null || assemblyLine.trim().isEmpty()) {
             System.err.printf("%sInvalid assembly line: %s\n", ColoredLog.WARNING, assemblyLine);
             return null;
         }
 
-        // Normalize commas, spaces, and brackets
-        assemblyLine = assemblyLine.trim()
-                .replaceAll("\\s*,\\s*", ",")
-                .replaceAll("\\s*\\[\\s*", "[")
-                .replaceAll("\\s*\\]\\s*", "]");
-
-        // Extract mnemonic
-        int firstSpace = assemblyLine.indexOf(' ');
-        if (firstSpace == -1) {
-            System.err.printf("%sInvalid assembly line format: %s\n", ColoredLog.WARNING, assemblyLine);
-            return null;
-        }
-        String mnemonic = assemblyLine.substring(0, firstSpace).toUpperCase();
-        InstructionDefinition definition = configLoader.getDefinitionByMnemonic(mnemonic);
-        if (definition == null) {
-            System.err.printf("%sUnknown mnemonic: %s\n", ColoredLog.WARNING, mnemonic);
+        try {
+            return assembleLine(assemblyLine, 1, 0, 0, Map.of());
+        } catch (InvalidInstructionException e) {
+            System.err.printf("%s%s\n", ColoredLog.WARNING, e.getMessage());
             return null;
         }
-
-        // Split remaining parts based on format
-        String operands = assemblyLine.substring(firstSpace + 1).trim();
-        String[] parts = new String[4];
-        parts[0] = mnemonic;
-
-        switch (definition.getFormat()) {
-            case 'R':
-                // Handle CMP specially (only 2 operands)
-                if (mnemonic.equals("CMP")) {
-                    String[] rParts = operands.split(",");
-                    if (rParts.length != 2) {
-                        System.err.printf("%sInvalid CMP instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                        return null;
-                    }
-                    parts[1] = "XZR"; // CMP doesn't write to a register
-                    parts[2] = rParts[0].trim();
-                    parts[3] = rParts[1].trim();
-                } else {
-                    // ADD, SUB, AND, ORR: "Xd, Xn, Xm"
-                    String[] rParts = operands.split(",");
-                    if (rParts.length != 3) {
-                        System.err.printf("%sInvalid R-format instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                        return null;
-                    }
-                    for (int i = 0; i < 3; i++) {
-                        parts[i + 1] = rParts[i].trim();
-                    }
-                }
-                break;
-
-            case 'I':
-                // ADDI, SUBI: "Xd, Xn, #imm"
-                String[] iParts = operands.split(",");
-                if (iParts.length != 3 || !iParts[2].trim().startsWith("#")) {
-                    System.err.printf("%sInvalid I-format instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                    return null;
-                }
-                for (int i = 0; i < 3; i++) {
-                    parts[i + 1] = iParts[i].trim();
-                }
-                break;
-
-            case 'D':
-                // LDUR, STUR: "Xt, [Xn, #offset]"
-                Pattern dPattern = Pattern.compile("(\\w+)\\s*,\\s*\\[(\\w+)\\s*,\\s*(#[\\d-]+)\\]");
-                Matcher dMatcher = dPattern.matcher(operands);
-                if (dMatcher.matches()) {
-                    parts[1] = dMatcher.group(1); // Xt
-                    parts[2] = dMatcher.group(2); // Xn
-                    parts[3] = dMatcher.group(3); // #offset
-                } else {
-                    System.err.printf("%sInvalid D-format instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                    return null;
-                }
-                break;
-
-            case 'M':
-                if (mnemonic.equals("MOV")) {
-                    // MOV Xd, #imm
-                    String[] movParts = operands.split(",");
-                    if (movParts.length != 2 || !movParts[1].trim().startsWith("#")) {
-                        System.err.printf("%sInvalid MOV instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                        return null;
-                    }
-                    parts[1] = movParts[0].trim();          // Xd
-                    parts[2] = movParts[1].trim();          // #imm
-                    parts[3] = "LSL #0";                    // Default shift
-                } else {
-                    // MOVZ Xd, #imm [, LSL #n]
-                    Pattern mPattern = Pattern.compile(
-                        "(\\w+)\\s*,\\s*(#[0-9a-fA-Fx_]+)(?:\\s*,\\s*(LSL\\s*#[\\d]+))?"
-                    );
-                    Matcher mMatcher = mPattern.matcher(operands);
-
-                    if (mMatcher.matches()) {
-                        parts[1] = mMatcher.group(1);       // Xd
-                        parts[2] = mMatcher.group(2);       // #imm
-                        parts[3] = (mMatcher.group(3) != null) ? mMatcher.group(3) : "LSL #0"; // Optional shift
-                    } else {
-                        System.err.printf("%sInvalid MOVZ instruction format: %s\n", ColoredLog.WARNING, assemblyLine);
-                        return null;
-                    }
-                }
-                break;
-
-            case 'B':
-                // B: "#offset" or "label"
-                // For B-format, only need mnemonic and offset, so create a new array with just 2 elements
-                if (operands.startsWith("#")) {
-                    // Direct numeric offset: B #4
-                    parts = new String[2];  // Reset to only 2 elements
-                    parts[0] = mnemonic;
-                    parts[1] = operands.trim(); // #offset
-                } else {
-                    // Label: B skip, B done
-                    // For now, treat labels as zero offset (will need label resolution later)
-                    parts = new String[2];  // Reset to only 2 elements
-                    parts[0] = mnemonic;
-                    parts[1] = "#0"; // Placeholder - labels need to be resolved later
-                    // Store the label for potential future resolution
-                    // Note: Full label resolution would require a two-pass assembler
-                }
-                break;
-
-            default:
-                System.err.printf("%sUnsupported instruction format: %c\n", ColoredLog.WARNING, definition.getFormat());
-                return null;
-        }
-
-        System.out.println("Parts: " + java.util.Arrays.toString(parts));
-
-        BitSet bytecode = new BitSet(32);
-        switch (definition.getFormat()) {
-            case 'R':
-                return assembleRFormat(parts, definition, bytecode);
-            case 'I':
-                return assembleIFormat(parts, definition, bytecode);
-            case 'D':
-                return assembleDFormat(parts, definition, bytecode);
-            case 'M':
-                return assembleIMFormat(parts, definition, bytecode);
-            case 'B':
-                return assembleBFormat(parts, definition, bytecode);
-            default:
-                System.err.printf("%sUnsupported instruction format: %c\n", ColoredLog.WARNING, definition.getFormat());
-                return null;
-        }
     }
 
-    // Label resolution support
-    private Map<String, Integer> labelMap = new HashMap<>();
-
     /**
      * Create instructions from multiple assembly lines with label resolution
      */
     public List<Instruction> createFromAssemblyLines(String[] assemblyLines) {
-        labelMap.clear();
-        List<String> cleanedLines = new java.util.ArrayList<>();
+        return assembleSource(assemblyLines).getInstructions();
+    }
 
-        // First pass: collect labels and clean up lines
-        int instructionIndex = 0; // Index for actual instructions (excluding labels)
-        for (String line : assemblyLines) {
-            line = line.trim();
-            if (line.isEmpty() || line.startsWith("//") || line.startsWith(";")) {
+    /**
+     * Two-pass assembly: the first pass collects labels and the lines holding instructions,
+     * the second assembles each instruction with labels resolved. Lines that fail to assemble are
+     * reported with their line and column and left out of the program.
+     * All label state is local to the call, so one factory can assemble on many threads at once.
+     */
+    private AssembledProgram assembleSource(String[] assemblyLines) {
+        Map<String, Integer> labelMap = new LinkedHashMap<>();
+        List<String> diagnostics = new ArrayList<>();
+        List<String> sourceLines = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+        List<Integer> startColumns = new ArrayList<>();
+
+        // First pass: collect labels and the lines that hold an instruction
+        for (int i = 0; i < assemblyLines.length; i++) {
+            String line = assemblyLines[i];
+            AssemblyLexer lexer = new AssemblyLexer(line, i + 1, 0);
+            if (lexer.atEnd()) {
                 continue; // Skip empty lines and comments
             }
 
-            // Check for labels (lines ending with colon)
-            if (line.endsWith(":")) {
-                String label = line.substring(0, line.length() - 1).trim();
-                labelMap.put(label, instructionIndex); // Use instruction index, not line index
-                System.out.println("Found label: " + label + " at instruction index " + instructionIndex);
-                continue; // Don't add label lines to instruction list
+            int start = lexer.position();
+            try {
+                // A label ("name:") may stand alone or precede an instruction on the same line
+                if (lexer.atIdentifier()) {
+                    String label = lexer.identifier();
+                    if (lexer.accept(':')) {
+                        if (labelMap.putIfAbsent(label, sourceLines.size()) != null) {
+                            throw lexer.error("Duplicate label '" + label + "'", start);
+                        }
+                        if (lexer.atEnd()) {
+                            continue;
+                        }
+                        start = lexer.position();
+                    }
+                }
+            } catch (InvalidInstructionException e) {
+                report(diagnostics, e);
+                continue;
             }
 
-            cleanedLines.add(line);
-            instructionIndex++; // Increment only for actual instructions
+            sourceLines.add(line);
+            lineNumbers.add(i + 1);
+            startColumns.add(start);
         }
 
         // Second pass: create instructions with resolved labels
-        List<Instruction> instructions = new java.util.ArrayList<>();
-        for (int i = 0; i < cleanedLines.size(); i++) {
-            String line = cleanedLines.get(i);
-            Instruction instruction = createFromAssemblyWithLabels(line, i);
-            if (instruction != null) {
-                instructions.add(instruction);
+        List<Instruction> instructions = new ArrayList<>(sourceLines.size());
+        for (int i = 0; i < sourceLines.size(); i++) {
+            try {
+                instructions.add(assembleLine(sourceLines.get(i), lineNumbers.get(i), startColumns.get(i), i, labelMap));
+            } catch (InvalidInstructionException e) {
+                report(diagnostics, e);
             }
         }
 
-        return instructions;
+        return new AssembledProgram(instructions, labelMap, diagnostics);
+    }
+
+    private void report(List<String> diagnostics, InvalidInstructionException e) {
+        System.err.printf("%s%s\n", ColoredLog.WARNING, e.getMessage());
+        diagnostics.add(e.getMessage());
     }
 
     /**
-     * Create instruction from assembly line with label resolution
+     * Assembles a program once, keeping its symbol table, so it can be saved with {@link ObjectFile}.
+     * @param assemblyLines The assembly source lines.
+     * @return The assembled program and its labels.
      */
-    private Instruction createFromAssemblyWithLabels(String assemblyLine, int currentLineIndex) {
-        // Handle B-format instructions with labels
-        if (assemblyLine.trim().toUpperCase().startsWith("B ")) {
-            String operand = assemblyLine.substring(2).trim();
-            if (!operand.startsWith("#")) {
-                // This is a label reference
-                String label = operand;
-                if (labelMap.containsKey(label)) {
-                    int targetLine = labelMap.get(label);
-                    int offset = targetLine - currentLineIndex;
-                    // Replace the label with the calculated offset
-                    assemblyLine = "B #" + offset;
-                    System.out.println("Resolved label '" + label + "' to offset " + offset);
-                } else {
-                    System.err.printf("%sUndefined label: %s\n", ColoredLog.WARNING, label);
-                    return null;
+    public AssembledProgram assemble(String[] assemblyLines) {
+        String key = assemblyCacheCapacity > 0 ? sourceHash(assemblyLines) : null;
+        if (key != null) {
+            synchronized (assemblyCache) {
+                AssembledProgram cached = assemblyCache.get(key);
+                if (cached != null) {
+                    assemblyCacheHits++;
+                    return cached;
                 }
+                assemblyCacheMisses++;
             }
         }
 
-        // Use the original createFromAssembly method
-        return createFromAssembly(assemblyLine);
-    }
-
-    private Instruction assembleRFormat(String[] parts, InstructionDefinition definition, BitSet bytecode) {
-        String mnemonic = definition.getMnemonic();
-        int rd = 0, rn = 0, rm = 0, shamt = 0;
+        AssembledProgram assembled = assembleSource(assemblyLines);
 
-        try {
-            String opcode = definition.getOpcodeId();
-            for (int i = 0; i < opcode.length(); i++) {
-                if (opcode.charAt(opcode.length() - 1 - i) == '1') {
-                    bytecode.set(31 - i);
-                }
+        // Diagnostics carry line and column positions of this exact source, which the normalized key
+        // does not capture, so only programs that assembled cleanly are cached
+        if (key != null && assembled.getDiagnostics().isEmpty()) {
+            synchronized (assemblyCache) {
+                assemblyCache.put(key, assembled);
+                trimAssemblyCache();
             }
+        }
+        return assembled;
+    }
 
-            if (mnemonic.equals("BR")) {
-                if (parts.length != 2) {
-                    System.err.printf("%sInvalid BR format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-                    return null;
-                }
-                rn = parseRegister(parts[1]);
-                Instruction.setBits(bytecode, rn, 5, 9);
-            } else if (mnemonic.equals("LSL") || mnemonic.equals("LSR") || mnemonic.equals("ASR")) {
-                if (parts.length != 4 || !parts[3].startsWith("#")) {
-                    System.err.printf("%sInvalid shift instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-                    return null;
-                }
-                rd = parseRegister(parts[1]);
-                rn = parseRegister(parts[2]);
-                shamt = parseImmediate(parts[3]);
-                Instruction.setBits(bytecode, rd, 0, 4);
-                Instruction.setBits(bytecode, rn, 5, 9);
-                Instruction.setBits(bytecode, shamt, 10, 15);
-                Instruction.setBits(bytecode, parseRegister(parts[2]), 16, 20);
-            } else {
-                if (parts.length != 4) {
-                    System.err.printf("%sInvalid R-format instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-                    return null;
-                }
-                rd = parseRegister(parts[1]);
-                rn = parseRegister(parts[2]);
-                rm = parseRegister(parts[3]);
-                Instruction.setBits(bytecode, rd, 0, 4);
-                Instruction.setBits(bytecode, rn, 5, 9);
-                Instruction.setBits(bytecode, rm, 16, 20);
-            }
+    // --- Assembly Cache ---
 
-            return new RFormatInstruction(bytecode, definition);
-        } catch (IllegalArgumentException e) {
-            System.err.printf("%sError assembling R-format instruction: %s\n", ColoredLog.WARNING, e.getMessage());
-            return null;
+    /**
+     * Sets the maximum number of assembled programs kept in the cache. A capacity of 0 disables caching.
+     * @param capacity The new capacity.
+     */
+    public void setAssemblyCacheCapacity(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Cache capacity cannot be negative: " + capacity);
+        }
+        synchronized (assemblyCache) {
+            assemblyCacheCapacity = capacity;
+            trimAssemblyCache();
         }
     }
 
-    private Instruction assembleIFormat(String[] parts, InstructionDefinition definition, BitSet bytecode) {
-        if (parts.length != 4 || !parts[3].startsWith("#")) {
-            System.err.printf("%sInvalid I-format instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-            return null;
+    public int getAssemblyCacheCapacity() {
+        synchronized (assemblyCache) {
+            return assemblyCacheCapacity;
         }
+    }
 
-        try {
-            String opcode = definition.getOpcodeId();
-            for (int i = 0; i < opcode.length(); i++) {
-                if (opcode.charAt(opcode.length() - 1 - i) == '1') {
-                    bytecode.set(31 - i);
-                }
-            }
-
-            int rd = parseRegister(parts[1]);
-            int rn = parseRegister(parts[2]);
-            int immediate = parseImmediate(parts[3]);
-
-            if (immediate < -2048 || immediate > 2047) {
-                throw new IllegalArgumentException("Immediate value out of range (12-bit signed): " + immediate);
-            }
+    public long getAssemblyCacheHits() {
+        synchronized (assemblyCache) {
+            return assemblyCacheHits;
+        }
+    }
 
-            Instruction.setBits(bytecode, rd, 0, 4);
-            Instruction.setBits(bytecode, rn, 5, 9);
-            Instruction.setBits(bytecode, immediate & 0xFFF, 10, 21);
+    public long getAssemblyCacheMisses() {
+        synchronized (assemblyCache) {
+            return assemblyCacheMisses;
+        }
+    }
 
-            return new IFormatInstruction(bytecode, definition);
-        } catch (IllegalArgumentException e) {
-            System.err.printf("%sError assembling I-format instruction: %s\n", ColoredLog.WARNING, e.getMessage());
-            return null;
+    /**
+     * Empties the assembly cache and resets its hit/miss counters.
+     */
+    public void clearAssemblyCache() {
+        synchronized (assemblyCache) {
+            assemblyCache.clear();
+            assemblyCacheHits = 0;
+            assemblyCacheMisses = 0;
         }
     }
 
-    private Instruction assembleDFormat(String[] parts, InstructionDefinition definition, BitSet bytecode) {
-        if (parts.length != 4 || !parts[3].startsWith("#")) {
-            System.err.printf("%sInvalid D-format instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-            return null;
+    private void trimAssemblyCache() {
+        Iterator<String> eldest = assemblyCache.keySet().iterator();
+        while (assemblyCache.size() > assemblyCacheCapacity && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
         }
+    }
 
+    /**
+     * Hashes the source lines after the same normalization the assembler applies
+     * (trimmed, without blank and comment lines), so indentation and comment edits still hit the cache.
+     * Safe only for programs without diagnostics, whose positions depend on the raw lines.
+     */
+    private static String sourceHash(String[] assemblyLines) {
+        MessageDigest digest;
         try {
-            String opcode = definition.getOpcodeId();
-            for (int i = 0; i < opcode.length(); i++) {
-                if (opcode.charAt(opcode.length() - 1 - i) == '1') {
-                    bytecode.set(31 - i);
-                }
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+        for (String line : assemblyLines) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("//") || line.startsWith(";")) {
+                continue;
             }
+            digest.update(line.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
 
-            int rt = parseRegister(parts[1]);
-            int rn = parseRegister(parts[2]);
-            int address = parseImmediate(parts[3]);
+    // --- Line Assembly ---
 
-            if (address < -256 || address > 255) {
-                throw new IllegalArgumentException("Address offset out of range (9-bit signed): " + address);
+    /**
+     * Assembles the instruction starting at {@code start} in a source line.
+     * @param line The source line.
+     * @param lineNumber The 1-based line number, for error messages.
+     * @param start The index in the line where the instruction's mnemonic begins.
+     * @param index The instruction's index in the program, for resolving branch labels.
+     * @param labels The label to instruction index mapping.
+     * @return The assembled instruction.
+     * @throws InvalidInstructionException if the line is not a valid instruction.
+     */
+    private Instruction assembleLine(String line, int lineNumber, int start, int index, Map<String, Integer> labels) {
+        AssemblyLexer lexer = new AssemblyLexer(line, lineNumber, start);
+        int mnemonicColumn = lexer.position();
+        String mnemonic = lexer.identifier().toUpperCase();
+        InstructionDefinition definition = configLoader.getDefinitionByMnemonic(mnemonic);
+        int condition = -1;
+        if (definition == null && mnemonic.equals("RET")) {
+            definition = configLoader.getDefinitionByMnemonic("BR"); // RET [Xn] is BR, by default through X30
+        } else if (definition == null && mnemonic.startsWith("B.")) {
+            // B.cond: the condition is part of the mnemonic (B.EQ, B.LT, ...)
+            condition = CBFormatInstruction.conditionCode(mnemonic.substring(2));
+            if (condition >= 0) {
+                definition = configLoader.getDefinitionByMnemonic("B.COND");
             }
+        }
+        if (definition == null) {
+            throw lexer.error("Unknown mnemonic '" + mnemonic + "'", mnemonicColumn);
+        }
 
-            Instruction.setBits(bytecode, rt, 0, 4);
-            Instruction.setBits(bytecode, rn, 5, 9);
-            Instruction.setBits(bytecode, address & 0x1FF, 12, 20);
-            Instruction.setBits(bytecode, 0, 10, 11); // op2 = 00 for LDUR/STUR
-
-            return new DFormatInstruction(bytecode, definition);
-        } catch (IllegalArgumentException e) {
-            System.err.printf("%sError assembling D-format instruction: %s\n", ColoredLog.WARNING, e.getMessage());
-            return null;
+        int word = opcodeBits(definition);
+        Instruction instruction;
+        switch (definition.getFormat()) {
+            case 'R':
+                instruction = new RFormatInstruction(assembleRFormat(lexer, mnemonic, word), definition);
+                break;
+            case 'I':
+                instruction = new IFormatInstruction(assembleIFormat(lexer, word), definition);
+                break;
+            case 'D':
+                instruction = new DFormatInstruction(assembleDFormat(lexer, word), definition);
+                break;
+            case 'M':
+                instruction = new IMFormatInstruction(assembleIMFormat(lexer, mnemonic, word), definition);
+                break;
+            case 'B':
+                instruction = new BFormatInstruction(assembleBFormat(lexer, index, labels, word), definition, index);
+                break;
+            case 'C':
+                if (condition < 0 && mnemonic.equals("B.COND")) {
+                    throw lexer.error("B.cond needs a condition, e.g. B.EQ", mnemonicColumn);
+                }
+                instruction = new CBFormatInstruction(assembleCBFormat(lexer, condition, index, labels, word), definition, index);
+                break;
+            default:
+                throw lexer.error("Unsupported instruction format: " + definition.getFormat(), mnemonicColumn);
         }
+        lexer.expectEnd();
+        return instruction;
     }
 
-    private Instruction assembleIMFormat(String[] parts, InstructionDefinition definition, BitSet bytecode) {
-        if (parts.length != 4 || !parts[2].startsWith("#") || !parts[3].toUpperCase().startsWith("LSL")) {
-            System.err.printf("%sInvalid IM-format instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-            return null;
+    private int assembleRFormat(AssemblyLexer lexer, String mnemonic, int word) {
+        if (mnemonic.equals("BR")) {
+            // BR Xn
+            return Instruction.setBits(word, lexer.register(), 5, 9);
         }
 
-        try {
-            String opcode = definition.getOpcodeId();
-            for (int i = 0; i < opcode.length(); i++) {
-                if (opcode.charAt(opcode.length() - 1 - i) == '1') {
-                    bytecode.set(31 - i);
-                }
-            }
+        if (mnemonic.equals("RET")) {
+            // RET [Xn]
+            return Instruction.setBits(word, lexer.atEnd() ? Constants.LINK_REGISTER : lexer.register(), 5, 9);
+        }
 
-            int rd = parseRegister(parts[1]);
-            int immediate = parseImmediate(parts[2]);
-            String shiftStr = parts[3].substring(parts[3].toUpperCase().indexOf('#') + 1);
-            int shift = Integer.parseInt(shiftStr) / 16;
+        if (mnemonic.equals("CMP")) {
+            // CMP Xn, Xm (CMP doesn't write to a register)
+            int rn = lexer.register();
+            lexer.expect(',');
+            int rm = lexer.register();
+            word = Instruction.setBits(word, Constants.ZERO_REGISTER, 0, 4);
+            word = Instruction.setBits(word, rn, 5, 9);
+            return Instruction.setBits(word, rm, 16, 20);
+        }
 
-            if (immediate < 0 || immediate > 0xFFFF) {
-                throw new IllegalArgumentException("Immediate value out of range: " + immediate);
-            }
-            if (shift < 0 || shift > 3) {
-                throw new IllegalArgumentException("Invalid shift value: " + shiftStr);
+        int rd = lexer.register();
+        lexer.expect(',');
+        int rn = lexer.register();
+        lexer.expect(',');
+        word = Instruction.setBits(word, rd, 0, 4);
+        word = Instruction.setBits(word, rn, 5, 9);
+
+        if (mnemonic.equals("LSL") || mnemonic.equals("LSR") || mnemonic.equals("ASR")) {
+            // LSL Xd, Xn, #shamt
+            int column = lexer.position();
+            long shamt = lexer.immediate();
+            if (shamt < 0 || shamt > 63) {
+                throw lexer.error("Shift amount out of range (0-63): " + shamt, column);
             }
+            word = Instruction.setBits(word, (int) shamt, 10, 15);
+            return Instruction.setBits(word, rn, 16, 20);
+        }
 
-            Instruction.setBits(bytecode, rd, 0, 4);
-            Instruction.setBits(bytecode, immediate, 5, 20);
-            Instruction.setBits(bytecode, shift, 21, 22);
+        // ADD, SUB, AND, ORR, ...: Xd, Xn, Xm
+        return Instruction.setBits(word, lexer.register(), 16, 20);
+    }
 
-            return new IMFormatInstruction(bytecode, definition);
-        } catch (IllegalArgumentException e) {
-            System.err.printf("%sError assembling IM-format instruction: %s\n", ColoredLog.WARNING, e.getMessage());
-            return null;
+    private int assembleIFormat(AssemblyLexer lexer, int word) {
+        // ADDI, SUBI: Xd, Xn, #imm
+        int rd = lexer.register();
+        lexer.expect(',');
+        int rn = lexer.register();
+        lexer.expect(',');
+        int column = lexer.position();
+        long immediate = lexer.immediate();
+
+        if (immediate < -2048 || immediate > 2047) {
+            throw lexer.error("Immediate value out of range (12-bit signed): " + immediate, column);
         }
+
+        word = Instruction.setBits(word, rd, 0, 4);
+        word = Instruction.setBits(word, rn, 5, 9);
+        return Instruction.setBits(word, (int) immediate & 0xFFF, 10, 21);
     }
 
-    private Instruction assembleBFormat(String[] parts, InstructionDefinition definition, BitSet bytecode) {
-        if (parts.length != 2 || !parts[1].startsWith("#")) {
-            System.err.printf("%sInvalid B-format instruction format: %s\n", ColoredLog.WARNING, String.join(" ", parts));
-            return null;
+    private int assembleDFormat(AssemblyLexer lexer, int word) {
+        // LDUR, STUR: Xt, [Xn, #offset] or Xt, [Xn]
+        int rt = lexer.register();
+        lexer.expect(',');
+        lexer.expect('[');
+        int rn = lexer.register();
+        long address = 0;
+        int column = lexer.position();
+        if (lexer.accept(',')) {
+            column = lexer.position();
+            address = lexer.immediate();
         }
+        lexer.expect(']');
 
-        try {
-            String opcode = definition.getOpcodeId();
-            for (int i = 0; i < opcode.length(); i++) {
-                if (opcode.charAt(opcode.length() - 1 - i) == '1') {
-                    bytecode.set(31 - i);
-                }
-            }
+        if (address < -256 || address > 255) {
+            throw lexer.error("Address offset out of range (9-bit signed): " + address, column);
+        }
 
-            int offset = parseImmediate(parts[1]);
+        word = Instruction.setBits(word, rt, 0, 4);
+        word = Instruction.setBits(word, rn, 5, 9);
+        word = Instruction.setBits(word, (int) address & 0x1FF, 12, 20);
+        return Instruction.setBits(word, 0, 10, 11); // op2 = 00 for LDUR/STUR
+    }
+
+    private int assembleIMFormat(AssemblyLexer lexer, String mnemonic, int word) {
+        // MOVZ, MOVK: Xd, #imm [, LSL #n]; MOV: Xd, #imm
+        int rd = lexer.register();
+        lexer.expect(',');
+        int column = lexer.position();
+        long immediate = lexer.immediate();
+        if (immediate < 0 || immediate > 0xFFFF) {
+            throw lexer.error("Immediate value out of range (16-bit unsigned): " + immediate, column);
+        }
 
-            if (offset < -33554432 || offset > 33554431) {
-                throw new IllegalArgumentException("Branch offset out of range (26-bit signed): " + offset);
+        long shift = 0;
+        if (!mnemonic.equals("MOV") && lexer.accept(',')) {
+            column = lexer.position();
+            if (!lexer.acceptKeyword("LSL")) {
+                throw lexer.error("Expected LSL", column);
             }
+            column = lexer.position();
+            shift = lexer.immediate();
+            if (shift < 0 || shift > 48 || shift % 16 != 0) {
+                throw lexer.error("Invalid shift value (0, 16, 32 or 48): " + shift, column);
+            }
+        }
 
-            Instruction.setBits(bytecode, offset & 0x3FFFFFF, 0, 25);
+        word = Instruction.setBits(word, rd, 0, 4);
+        word = Instruction.setBits(word, (int) immediate, 5, 20);
+        return Instruction.setBits(word, (int) (shift / 16), 21, 22);
+    }
 
-            return new BFormatInstruction(bytecode, definition);
-        } catch (IllegalArgumentException e) {
-            System.err.printf("%sError assembling B-format instruction: %s\n", ColoredLog.WARNING, e.getMessage());
-            return null;
-        }
+    private int assembleBFormat(AssemblyLexer lexer, int index, Map<String, Integer> labels, int word) {
+        // B: #offset or label
+        int offset = branchOffset(lexer, index, labels, 26);
+        return Instruction.setBits(word, offset & 0x3FFFFFF, 0, 25);
     }
 
-    private int parseRegister(String reg) {
-        if (reg == null || reg.isEmpty()) {
-            throw new IllegalArgumentException("Register cannot be null or empty");
+    private int assembleCBFormat(AssemblyLexer lexer, int condition, int index, Map<String, Integer> labels, int word) {
+        // CBZ, CBNZ: Xt, label; B.cond: label (the condition goes in the Rt field)
+        int rt = condition;
+        if (condition < 0) {
+            rt = lexer.register();
+            lexer.expect(',');
         }
-        reg = reg.replaceAll("[,\\s]+", "");
-        if (!reg.matches("X\\d+|XZR")) {
-            throw new IllegalArgumentException("Invalid register: " + reg);
-        }
-        if (reg.equals("XZR")) {
-            return 31;
-        }
-        int regNum = Integer.parseInt(reg.substring(1));
-        if (regNum < 0 || regNum > 31) {
-            throw new IllegalArgumentException("Register index out of range: " + reg);
-        }
-        return regNum;
+        int offset = branchOffset(lexer, index, labels, 19);
+        word = Instruction.setBits(word, rt, 0, 4);
+        return Instruction.setBits(word, offset & 0x7FFFF, 5, 23);
     }
 
     /**
-     * Parse immediate values that can be in decimal (#123) or hexadecimal (#0x1000) format
+     * Reads a branch destination (a label or {@code #offset}) and returns its offset in instructions.
+     * @param lexer The lexer, positioned at the destination.
+     * @param index The index of the branch instruction.
+     * @param labels The label to instruction index mapping.
+     * @param bits The width of the signed offset field.
+     * @return The offset from the branch to its target.
      */
-    private int parseImmediate(String immediateStr) {
-        if (immediateStr == null || immediateStr.isEmpty() || !immediateStr.startsWith("#")) {
-            throw new IllegalArgumentException("Invalid immediate value format: " + immediateStr);
+    private int branchOffset(AssemblyLexer lexer, int index, Map<String, Integer> labels, int bits) {
+        int column = lexer.position();
+        long offset;
+        if (lexer.atIdentifier()) {
+            String label = lexer.identifier();
+            Integer target = labels.get(label);
+            if (target == null) {
+                throw lexer.error("Undefined label '" + label + "'", column);
+            }
+            offset = target - index;
+        } else {
+            offset = lexer.immediate();
         }
 
-        String valueStr = immediateStr.substring(1).trim(); // Remove the '#'
-
-        try {
-            if (valueStr.toLowerCase().startsWith("0x")) {
-                // Hexadecimal format
-                return Integer.parseInt(valueStr.substring(2), 16);
-            } else {
-                // Decimal format
-                return Integer.parseInt(valueStr);
-            }
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid immediate value: " + immediateStr, e);
+        long limit = 1L << (bits - 1);
+        if (offset < -limit || offset >= limit) {
+            throw lexer.error("Branch offset out of range (" + bits + "-bit signed): " + offset, column);
         }
+        return (int) offset;
+    }
+
+    /**
+     * Places the definition's opcode in the top bits of an otherwise empty instruction word.
+     */
+    private int opcodeBits(InstructionDefinition definition) {
+        String opcode = definition.getOpcodeId();
+        return Integer.parseInt(opcode, 2) << (32 - opcode.length());
     }
 }
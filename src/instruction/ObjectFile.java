@@ -0,0 +1,115 @@
+package instruction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ObjectFile reads and writes assembled programs in a compact little-endian binary format,
+ * so a program can be assembled once and reloaded without running the assembler again.
+ *
+ * <pre>
+ * Header   : magic "LEG8" (4 bytes), version (u16), reserved (u16), symbol count (u32), instruction count (u32)
+ * Symbols  : for each symbol, name length (u16), UTF-8 name bytes, instruction index (u32)
+ * Code     : instruction words (u32 each)
+ * </pre>
+ */
+public final class ObjectFile {
+    public static final int MAGIC = 0x3847454C; // "LEG8" read as a little-endian int
+    public static final short VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+
+    private ObjectFile() {
+        throw new AssertionError("Utility class - cannot instantiate");
+    }
+
+    /**
+     * Writes an assembled program to an object file, replacing any existing file.
+     * @param program The program to write.
+     * @param path The path of the object file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void write(AssembledProgram program, Path path) throws IOException {
+        Map<String, Integer> symbols = program.getSymbols();
+        List<Instruction> instructions = program.getInstructions();
+
+        int size = HEADER_SIZE + instructions.size() * 4;
+        for (String name : symbols.keySet()) {
+            size += 2 + name.getBytes(StandardCharsets.UTF_8).length + 4;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) 0);
+        buffer.putInt(symbols.size());
+        buffer.putInt(instructions.size());
+
+        for (Map.Entry<String, Integer> symbol : symbols.entrySet()) {
+            byte[] name = symbol.getKey().getBytes(StandardCharsets.UTF_8);
+            if (name.length > 0xFFFF) {
+                throw new IOException("Symbol name too long: " + symbol.getKey());
+            }
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+            buffer.putInt(symbol.getValue());
+        }
+
+        for (Instruction instruction : instructions) {
+            buffer.putInt(instruction.getWord());
+        }
+
+        Files.write(path, buffer.array());
+    }
+
+    /**
+     * Reads an object file and decodes its instruction words.
+     * @param path The path of the object file.
+     * @param factory The factory used to decode the instruction words.
+     * @return The assembled program stored in the file.
+     * @throws IOException if the file cannot be read or is not a valid object file.
+     */
+    public static AssembledProgram read(Path path, InstructionFactory factory) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a LEGv8 object file: " + path);
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                throw new IOException("Unsupported object file version " + version + ": " + path);
+            }
+            buffer.getShort(); // reserved
+            int symbolCount = buffer.getInt();
+            int instructionCount = buffer.getInt();
+
+            try {
+                Map<String, Integer> symbols = new LinkedHashMap<>();
+                for (int i = 0; i < symbolCount; i++) {
+                    byte[] name = new byte[Short.toUnsignedInt(buffer.getShort())];
+                    buffer.get(name);
+                    symbols.put(new String(name, StandardCharsets.UTF_8), buffer.getInt());
+                }
+
+                if (buffer.remaining() != instructionCount * 4L) {
+                    throw new IOException("Object file code section has " + buffer.remaining()
+                            + " byte(s), expected " + instructionCount * 4L + ": " + path);
+                }
+                return new AssembledProgram(factory.createFromImage(buffer), symbols);
+            } catch (java.nio.BufferUnderflowException e) {
+                throw new IOException("Truncated object file: " + path, e);
+            }
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package instruction;
 
-import java.util.BitSet;
-
 /**
  * RFormatInstruction is a class that represents a register format instruction
  * in the LEGv8 architecture.
@@ -9,21 +7,15 @@ import java.util.BitSet;
  * instruction and extract its components.
  */
 public class RFormatInstruction extends Instruction {
-    private final int rd, rn, rm, shamt;
-
     // --- Constructor ---
     /**
      * Constructor for RFormatInstruction.
      * 
-     * @param bytecode   The bytecode of the instruction as a BitSet.
+     * @param word       The 32-bit instruction word.
      * @param definition The InstructionDefinition for this instruction.
      */
-    public RFormatInstruction(BitSet bytecode, InstructionDefinition definition) {
-        super(bytecode, definition);
-        this.rm = getRm_R();
-        this.shamt = getShamt_R();
-        this.rn = getRn_R();
-        this.rd = getRd_R();
+    public RFormatInstruction(int word, InstructionDefinition definition) {
+        super(word, definition);
     }
 
     // --- Instruction Methods ---
@@ -35,6 +27,7 @@ public class RFormatInstruction extends Instruction {
     @Override
     public String disassemble() {
         String mnemonic = definition.getMnemonic();
+        int rd = decoded.rd, rn = decoded.rn, rm = decoded.rm, shamt = decoded.shamt;
 
         switch (mnemonic) {
             case "LSL":
@@ -68,6 +61,6 @@ public class RFormatInstruction extends Instruction {
      * @return The shift amount for the instruction.
      */
     public int getShift() {
-        return shamt;
+        return decoded.shamt;
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package memory;
+
+import java.util.Arrays;
+
+/**
+ * DenseBackend stores memory in a single on-heap {@code long[]} covering addresses 0 to size-1.
+ * Written words are tracked with one bit per word, so scans only visit what the program touched.
+ */
+public class DenseBackend implements MemoryBackend {
+    private final long[] memory;
+
+    // Write tracking: one bit per 64-bit word
+    private final long[] touchedWords; // Words written since the last reset
+    private final long[] dirtyWords;   // Words changed since the last drainDirtyWords()
+    private int touchedWordCount;
+
+    /**
+     * Constructor for DenseBackend.
+     * @param sizeInBytes The memory size in bytes; must be a positive multiple of 8.
+     */
+    public DenseBackend(int sizeInBytes) {
+        if (sizeInBytes <= 0 || sizeInBytes % 8 != 0) {
+            throw new IllegalArgumentException("Memory size must be a positive multiple of 8: " + sizeInBytes);
+        }
+        memory = new long[sizeInBytes / 8];
+        touchedWords = new long[(memory.length + 63) / 64];
+        dirtyWords = new long[touchedWords.length];
+    }
+
+    private DenseBackend(DenseBackend source) {
+        memory = source.memory.clone();
+        touchedWords = source.touchedWords.clone();
+        dirtyWords = source.dirtyWords.clone();
+        touchedWordCount = source.touchedWordCount;
+    }
+
+    @Override
+    public long readWord(long address) {
+        return memory[(int) (address >>> 3)];
+    }
+
+    @Override
+    public void writeWord(long address, long value) {
+        int index = (int) (address >>> 3);
+        memory[index] = value;
+
+        long bit = 1L << index;
+        int block = index >>> 6;
+        if ((touchedWords[block] & bit) == 0) {
+            touchedWords[block] |= bit;
+            touchedWordCount++;
+        }
+        dirtyWords[block] |= bit;
+    }
+
+    @Override
+    public boolean isValid(long address, long size) {
+        return address >= 0 && address <= getSize() - size; // address + size could overflow
+    }
+
+    @Override
+    public String describeRange() {
+        return "0x0 to 0x" + Long.toHexString(getSize() - 1);
+    }
+
+    @Override
+    public long getSize() {
+        return (long) memory.length * 8;
+    }
+
+    @Override
+    public void reset() {
+        for (int block = 0; block < touchedWords.length; block++) {
+            long bits = touchedWords[block];
+            while (bits != 0) {
+                memory[(block << 6) + Long.numberOfTrailingZeros(bits)] = 0L;
+                bits &= bits - 1;
+            }
+            dirtyWords[block] |= touchedWords[block];
+            touchedWords[block] = 0L;
+        }
+        touchedWordCount = 0;
+    }
+
+    @Override
+    public void forEachTouchedWord(Memory.WordVisitor visitor) {
+        forEachSetBit(touchedWords, visitor);
+    }
+
+    @Override
+    public void drainDirtyWords(Memory.WordVisitor visitor) {
+        forEachSetBit(dirtyWords, visitor);
+        Arrays.fill(dirtyWords, 0L);
+    }
+
+    @Override
+    public int getTouchedWordCount() {
+        return touchedWordCount;
+    }
+
+    /**
+     * Copies the whole array; use {@link PagedBackend} when forks must share memory.
+     */
+    @Override
+    public DenseBackend fork() {
+        return new DenseBackend(this);
+    }
+
+    private void forEachSetBit(long[] bitmap, Memory.WordVisitor visitor) {
+        for (int block = 0; block < bitmap.length; block++) {
+            long bits = bitmap[block];
+            while (bits != 0) {
+                int index = (block << 6) + Long.numberOfTrailingZeros(bits);
+                visitor.visit((long) index * 8, memory[index]);
+                bits &= bits - 1;
+            }
+        }
+    }
+}
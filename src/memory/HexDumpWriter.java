@@ -0,0 +1,116 @@
+package memory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * HexDumpWriter streams a memory range as a canonical hex dump (16 bytes per line, like {@code hexdump -C}):
+ * <pre>
+ * 0000000000000000  0f 00 00 00 00 00 00 00  41 42 43 00 00 00 00 00  |........ABC.....|
+ * *
+ * 0000000000000040
+ * </pre>
+ * A run of lines identical to the previous one is collapsed into a single {@code *}, so large zeroed
+ * regions cost one line. Memory is read in 4 KB blocks and each line is formatted into a reused
+ * character buffer, so nothing is allocated per line.
+ */
+public class HexDumpWriter {
+    private static final int BYTES_PER_LINE = 16;
+    private static final int BLOCK_SIZE = 4096;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    // 16-digit address, 2 spaces, 16 * "xx " with an extra space mid-line, 1 space, then "|" + 16 chars + "|\n"
+    private static final int HEX_COLUMN = 16 + 2;
+    private static final int ASCII_COLUMN = HEX_COLUMN + BYTES_PER_LINE * 3 + 2;
+    private static final int LINE_LENGTH = ASCII_COLUMN + BYTES_PER_LINE + 3;
+
+    private final Writer out;
+    private final char[] line = new char[LINE_LENGTH];
+
+    /**
+     * Constructor for HexDumpWriter.
+     * @param out The destination; the caller is responsible for buffering and closing it.
+     */
+    public HexDumpWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a hex dump of {@code length} bytes starting at {@code base}.
+     * @param memory The memory to read.
+     * @param base The first byte address.
+     * @param length The number of bytes.
+     * @throws exceptions.MemoryAccessException if the range falls outside memory.
+     * @throws IOException if the destination cannot be written.
+     */
+    public void dump(Memory memory, long base, long length) throws IOException {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative dump length: " + length);
+        }
+        memory.checkRange(base, length);
+
+        ByteBuffer block = ByteBuffer.allocate(BLOCK_SIZE);
+        byte[] previous = new byte[BYTES_PER_LINE];
+        byte[] current = new byte[BYTES_PER_LINE];
+        boolean havePrevious = false;
+        boolean squeezing = false;
+
+        for (long offset = 0; offset < length; ) {
+            int blockLength = (int) Math.min(length - offset, BLOCK_SIZE);
+            block.clear().limit(blockLength);
+            memory.read(base + offset, block);
+            block.flip();
+
+            while (block.hasRemaining()) {
+                int count = Math.min(block.remaining(), BYTES_PER_LINE);
+                block.get(current, 0, count);
+                long address = base + offset;
+                offset += count;
+
+                if (count == BYTES_PER_LINE && havePrevious && Arrays.equals(current, previous)) {
+                    if (!squeezing) {
+                        out.write("*\n");
+                        squeezing = true;
+                    }
+                    continue;
+                }
+                squeezing = false;
+                writeLine(address, current, count);
+                byte[] swap = previous;
+                previous = current;
+                current = swap;
+                havePrevious = count == BYTES_PER_LINE;
+            }
+        }
+        appendAddress(base + length);
+        out.write(line, 0, 16);
+        out.write('\n');
+    }
+
+    private void writeLine(long address, byte[] bytes, int count) throws IOException {
+        Arrays.fill(line, ' ');
+        appendAddress(address);
+        for (int i = 0; i < count; i++) {
+            int column = HEX_COLUMN + i * 3 + (i >= 8 ? 1 : 0); // Extra gap between the two 8-byte halves
+            line[column] = HEX_DIGITS[(bytes[i] >>> 4) & 0xF];
+            line[column + 1] = HEX_DIGITS[bytes[i] & 0xF];
+        }
+        line[ASCII_COLUMN] = '|';
+        for (int i = 0; i < count; i++) {
+            int b = bytes[i] & 0xFF;
+            line[ASCII_COLUMN + 1 + i] = b >= 0x20 && b < 0x7F ? (char) b : '.';
+        }
+        line[ASCII_COLUMN + 1 + count] = '|';
+        line[ASCII_COLUMN + 2 + count] = '\n';
+        out.write(line, 0, ASCII_COLUMN + 3 + count);
+    }
+
+    private void appendAddress(long address) {
+        for (int i = 15; i >= 0; i--) {
+            line[i] = HEX_DIGITS[(int) (address & 0xF)];
+            address >>>= 4;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package memory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedFileBackend maps a file into memory with {@link FileChannel#map}, so the simulated data memory
+ * is the file's contents and opening it costs no copying or replay.
+ * <ul>
+ * <li>{@link FileChannel.MapMode#READ_WRITE}: writes go to the file, so a simulation can be stopped and reopened.</li>
+ * <li>{@link FileChannel.MapMode#PRIVATE}: the file is an initial data image; writes stay private to this backend.</li>
+ * </ul>
+ * The file is extended with zeros if it is shorter than the memory size.
+ * Words that are non-zero in the file count as touched; they are found by a single scan the first time
+ * the touched words are queried, so opening and running a program never pay for it. They are not dirty:
+ * drains report only words written (or reset) since the previous drain, and never scan the file.
+ */
+public class MappedFileBackend extends OffHeapBackend {
+
+    /**
+     * What {@link #reset()} restores.
+     */
+    public enum ResetPolicy {
+        /** Set every word to 0. In READ_WRITE mode the file is cleared as well. */
+        ZERO_FILL,
+        /**
+         * Restore the file's contents. In PRIVATE mode the file is mapped again, discarding private writes.
+         * In READ_WRITE mode the file already holds every write, so the contents are kept; this lets a
+         * persisted simulation survive program loads.
+         */
+        RELOAD
+    }
+
+    private final Path file;
+    private final FileChannel.MapMode mode;
+    private final ResetPolicy resetPolicy;
+    private boolean fileScanned;
+
+    /**
+     * Constructor for MappedFileBackend.
+     * @param file The file to map; created if missing.
+     * @param sizeInBytes The memory size in bytes; must be a positive multiple of 8.
+     * @param mode {@link FileChannel.MapMode#READ_WRITE} or {@link FileChannel.MapMode#PRIVATE}.
+     * @param resetPolicy What {@link #reset()} restores.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public MappedFileBackend(Path file, long sizeInBytes, FileChannel.MapMode mode, ResetPolicy resetPolicy) throws IOException {
+        super(sizeInBytes, map(file, sizeInBytes, mode));
+        this.file = file;
+        this.mode = mode;
+        this.resetPolicy = resetPolicy;
+    }
+
+    private static ByteBuffer[] map(Path file, long sizeInBytes, FileChannel.MapMode mode) throws IOException {
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            throw new IllegalArgumentException("Data memory cannot be mapped READ_ONLY; use READ_WRITE or PRIVATE.");
+        }
+        ByteBuffer[] chunks = new ByteBuffer[checkSize(sizeInBytes)];
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            for (int i = 0; i < chunks.length; i++) {
+                long position = (long) i << CHUNK_SHIFT;
+                chunks[i] = channel.map(mode, position, chunkSize(sizeInBytes, i)).order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+        return chunks;
+    }
+
+    @Override
+    public void reset() {
+        if (resetPolicy == ResetPolicy.ZERO_FILL) {
+            scanFile();
+            super.reset();
+            return;
+        }
+        if (mode == FileChannel.MapMode.PRIVATE) {
+            try {
+                ByteBuffer[] remapped = map(file, getSize(), mode);
+                untrackTouchedWords(false);
+                System.arraycopy(remapped, 0, chunks, 0, chunks.length);
+                fileScanned = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot reload memory image " + file, e);
+            }
+        }
+        // READ_WRITE + RELOAD: the mapping already reflects the file
+    }
+
+    @Override
+    public boolean startsZeroed() {
+        return false;
+    }
+
+    @Override
+    public void forEachTouchedWord(Memory.WordVisitor visitor) {
+        scanFile();
+        super.forEachTouchedWord(visitor);
+    }
+
+    @Override
+    public int getTouchedWordCount() {
+        scanFile();
+        return super.getTouchedWordCount();
+    }
+
+    /**
+     * Writes any changes in READ_WRITE mode through to the storage device.
+     */
+    public void force() {
+        if (mode == FileChannel.MapMode.READ_WRITE) {
+            for (ByteBuffer chunk : chunks) {
+                ((MappedByteBuffer) chunk).force();
+            }
+        }
+    }
+
+    /**
+     * @return The mapped file.
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Marks every word that is non-zero in the mapped file as touched, once per mapping.
+     */
+    private void scanFile() {
+        if (fileScanned) return;
+        fileScanned = true;
+        for (int i = 0; i < chunks.length; i++) {
+            ByteBuffer chunk = chunks[i];
+            long base = (long) i << CHUNK_SHIFT;
+            int limit = chunk.capacity();
+            for (int offset = 0; offset < limit; offset += 8) {
+                if (chunk.getLong(offset) != 0L) {
+                    markTouched(base + offset, false);
+                }
+            }
+        }
+    }
+}
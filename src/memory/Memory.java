@@ -1,73 +1,335 @@
 package memory;
 
 import util.Constants;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import exceptions.MemoryAccessException;
 
+/**
+ * Data memory of the simulator. Memory validates addresses and provides the 1/2/4/8-byte accessors,
+ * and delegates storage to a {@link MemoryBackend}: {@link DenseBackend} (the default, a 64 KB
+ * {@code long[]}), {@link PagedBackend} (sparse, full 64-bit address space),
+ * {@link OffHeapBackend} (large memories in direct buffers, outside the Java heap) or
+ * {@link MappedFileBackend} (a memory-mapped file, for persistent simulations and data images).
+ */
 public class Memory {
-    private long[] memory; // Sử dụng long[] để hỗ trợ 64-bit trực tiếp
+    private static final int DUMP_BUFFER_SIZE = 64 * 1024;
+
+    private final MemoryBackend backend;
+
+    /**
+     * Callback for iterating over memory words.
+     */
+    @FunctionalInterface
+    public interface WordVisitor {
+        void visit(long address, long value);
+    }
 
     public Memory() {
-        memory = new long[Constants.MEMORY_SIZE / 8]; // Chia 8 vì mỗi phần tử là 8 byte
+        this(new DenseBackend(Constants.MEMORY_SIZE));
+    }
+
+    /**
+     * Creates a memory on top of the given backend.
+     * @param backend The storage backend.
+     */
+    public Memory(MemoryBackend backend) {
+        this.backend = Objects.requireNonNull(backend, "Memory backend cannot be null.");
+    }
+
+    /**
+     * @return A sparse memory covering the full 64-bit address space.
+     */
+    public static Memory paged() {
+        return new Memory(new PagedBackend());
+    }
+
+    /**
+     * @param sizeInBytes The memory size in bytes; must be a positive multiple of 8.
+     * @return A memory of the given size stored off the Java heap.
+     */
+    public static Memory offHeap(long sizeInBytes) {
+        return new Memory(new OffHeapBackend(sizeInBytes));
+    }
+
+    /**
+     * @param file The file to map; created if missing and extended with zeros to the memory size.
+     * @param sizeInBytes The memory size in bytes; must be a positive multiple of 8.
+     * @param mode READ_WRITE to persist writes to the file, PRIVATE to use the file as an initial image.
+     * @param resetPolicy Whether {@link #reset()} zero-fills or reloads the file's contents.
+     * @return A memory backed by the mapped file.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public static Memory mappedFile(Path file, long sizeInBytes, FileChannel.MapMode mode,
+                                    MappedFileBackend.ResetPolicy resetPolicy) throws IOException {
+        return new Memory(new MappedFileBackend(file, sizeInBytes, mode, resetPolicy));
+    }
+
+    /**
+     * Creates a memory from a command-line style specification.
+     * @param spec "dense", "paged", "offheap:&lt;MB&gt;", "file:&lt;MB&gt;:&lt;path&gt;" (persistent) or
+     *             "image:&lt;MB&gt;:&lt;path&gt;" (private copy of the file, reloaded on reset).
+     * @return The new memory.
+     * @throws IllegalArgumentException if the specification is not recognised.
+     * @throws UncheckedIOException if a mapped file cannot be opened.
+     */
+    public static Memory fromSpec(String spec) {
+        String trimmed = spec.trim();
+        String normalized = trimmed.toLowerCase();
+        if (normalized.equals("dense")) {
+            return new Memory();
+        }
+        if (normalized.equals("paged")) {
+            return paged();
+        }
+        if (normalized.startsWith("offheap:")) {
+            try {
+                return offHeap(Long.parseLong(normalized.substring("offheap:".length())) << 20);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid off-heap memory size: " + spec, e);
+            }
+        }
+        if (normalized.startsWith("file:") || normalized.startsWith("image:")) {
+            String[] parts = trimmed.split(":", 3);
+            if (parts.length < 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Expected " + parts[0] + ":<MB>:<path>, got: " + spec);
+            }
+            boolean persistent = normalized.startsWith("file:");
+            try {
+                return mappedFile(Paths.get(parts[2]), Long.parseLong(parts[1]) << 20,
+                        persistent ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.PRIVATE,
+                        MappedFileBackend.ResetPolicy.RELOAD);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid mapped memory size: " + spec, e);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map memory file: " + parts[2], e);
+            }
+        }
+        throw new IllegalArgumentException("Unknown memory type: " + spec
+                + " (expected dense, paged, offheap:<MB>, file:<MB>:<path> or image:<MB>:<path>)");
+    }
+
+    /**
+     * Creates an independent copy of this memory. With a {@link PagedBackend} the copy shares pages
+     * copy-on-write, so the cost is proportional to the pages written after the fork, not to the memory size.
+     * @return The copy.
+     */
+    public Memory fork() {
+        return new Memory(backend.fork());
+    }
+
+    /**
+     * @return The storage backend.
+     */
+    public MemoryBackend getBackend() {
+        return backend;
     }
 
     /**
      * Đọc dữ liệu từ bộ nhớ với kích thước chỉ định.
+     * Memory is little-endian and byte-addressable: any address is allowed, and an access that
+     * crosses an 8-byte boundary combines the two words it spans.
      * @param address Địa chỉ 64-bit
      * @param size Kích thước (1, 2, 4, hoặc 8 byte)
-     * @return Giá trị đọc được
+     * @return Giá trị đọc được, zero-extended
      * @throws MemoryAccessException Nếu địa chỉ không hợp lệ
      */
     public long read(long address, int size) {
+        long mask = sizeMask(size);
         validateAddress(address, size);
-        int index = (int) (address / 8); // Chuyển đổi địa chỉ thành chỉ số mảng
-        long value = memory[index];
-        switch (size) {
-            case 1: // Đọc 1 byte (byte thấp nhất)
-                return value & 0xFF;
-            case 2: // Đọc 2 byte (short)
-                return (value >> ((address % 8) * 8)) & 0xFFFF;
-            case 4: // Đọc 4 byte (int)
-                return (value >> ((address % 8) * 8)) & 0xFFFFFFFFL;
-            case 8: // Đọc 8 byte (long)
-                return value;
-            default:
-                throw new MemoryAccessException("Kich thuoc khong duoc ho tro: " + size + " bytes");
+        long wordAddress = address & ~7L;
+        int shift = (int) (address & 7) << 3;
+        long value = backend.readWord(wordAddress) >>> shift;
+        if (shift + (size << 3) > 64) {
+            // (x << 1) << (63 - shift) == x << (64 - shift), without Java's shift-by-64 wrap-around
+            value |= (backend.readWord(wordAddress + 8) << 1) << (63 - shift);
         }
+        return value & mask;
+    }
+
+    /**
+     * Reads a value and sign-extends it to 64 bits (e.g. for LDURSW).
+     * @param address Địa chỉ 64-bit
+     * @param size Kích thước (1, 2, 4, hoặc 8 byte)
+     * @return Giá trị đọc được, sign-extended
+     * @throws MemoryAccessException Nếu địa chỉ không hợp lệ
+     */
+    public long readSigned(long address, int size) {
+        int unusedBits = 64 - (size << 3);
+        return (read(address, size) << unusedBits) >> unusedBits;
     }
 
     /**
      * Ghi dữ liệu vào bộ nhớ với kích thước chỉ định.
+     * Only the low {@code size} bytes of the value are stored; the other bytes of the affected words are preserved.
      * @param address Địa chỉ 64-bit
      * @param value Giá trị cần ghi
      * @param size Kích thước (1, 2, 4, hoặc 8 byte)
      * @throws MemoryAccessException Nếu địa chỉ không hợp lệ
      */
     public void write(long address, long value, int size) {
+        long mask = sizeMask(size);
         validateAddress(address, size);
-        int index = (int) (address / 8); // Chuyển đổi địa chỉ thành chỉ số mảng
-        long mask = switch (size) {
-            case 1 -> 0xFFL << ((address % 8) * 8);
-            case 2 -> 0xFFFFL << ((address % 8) * 8);
-            case 4 -> 0xFFFFFFFFL << ((address % 8) * 8);
-            case 8 -> 0xFFFFFFFFFFFFFFFFL;
-            default -> throw new MemoryAccessException("Kich thuoc khong duoc ho tro: " + size + " bytes");
-        };
-        long clearedValue = memory[index] & ~mask;
-        long shiftedValue = (value << ((address % 8) * 8)) & mask;
-        memory[index] = clearedValue | shiftedValue;
+        long wordAddress = address & ~7L;
+        int shift = (int) (address & 7) << 3;
+        if (shift == 0 && size == 8) {
+            backend.writeWord(wordAddress, value);
+            return;
+        }
+        long lowMask = mask << shift;
+        backend.writeWord(wordAddress, (backend.readWord(wordAddress) & ~lowMask) | ((value << shift) & lowMask));
+        if (shift + (size << 3) > 64) {
+            int highShift = 64 - shift; // 8..56 here
+            long highMask = mask >>> highShift;
+            long highAddress = wordAddress + 8;
+            backend.writeWord(highAddress, (backend.readWord(highAddress) & ~highMask) | ((value >>> highShift) & highMask));
+        }
     }
 
     /**
-     * Đặt lại toàn bộ bộ nhớ về 0.
+     * Đặt lại toàn bộ bộ nhớ về 0 (or, for a {@link MappedFileBackend} with the RELOAD policy, to the file's contents).
+     * Only words written since the last reset are cleared; they are reported as dirty.
      */
     public void reset() {
-        for (int i = 0; i < memory.length; i++) {
-            memory[i] = 0L;
+        backend.reset();
+    }
+
+    /**
+     * Checks that an access lies inside the backend's address range.
+     * @param address The first byte address of the access.
+     * @param size The access size in bytes.
+     * @return The address, for chaining.
+     * @throws MemoryAccessException if the access falls outside memory.
+     */
+    public long checkRange(long address, long size) {
+        if (!backend.isValid(address, size)) {
+            throw new MemoryAccessException("Memory address out of bounds: 0x" + Long.toHexString(address) +
+                " (Memory range: " + backend.describeRange() + ")");
+        }
+        return address;
+    }
+
+    // --- Bulk Access ---
+
+    /**
+     * Copies the remaining bytes of {@code src} into memory starting at {@code base}, advancing its position.
+     * The range is checked once; whole words are then written directly, so loading large arrays costs
+     * one backend write per 8 bytes.
+     * @param base The first byte address.
+     * @param src The bytes to load (memory is little-endian, so a little-endian long array loads as-is).
+     * @throws MemoryAccessException if the range falls outside memory.
+     */
+    public void load(long base, ByteBuffer src) {
+        int length = src.remaining();
+        if (length == 0) return;
+        checkRange(base, length);
+        ByteBuffer in = src.slice().order(ByteOrder.LITTLE_ENDIAN);
+        long address = base;
+        long end = base + length;
+
+        while ((address & 7) != 0 && address != end) { // Leading bytes up to a word boundary
+            write(address++, in.get(), 1);
+        }
+        while (end - address >= 8) {
+            backend.writeWord(address, in.getLong());
+            address += 8;
+        }
+        while (address != end) { // Trailing bytes
+            write(address++, in.get(), 1);
+        }
+        src.position(src.limit());
+    }
+
+    /**
+     * Copies memory starting at {@code base} into the remaining space of {@code dst}, advancing its position.
+     * @param base The first byte address.
+     * @param dst The buffer to fill.
+     * @throws MemoryAccessException if the range falls outside memory.
+     */
+    public void read(long base, ByteBuffer dst) {
+        int length = dst.remaining();
+        if (length == 0) return;
+        checkRange(base, length);
+        ByteBuffer out = dst.slice().order(ByteOrder.LITTLE_ENDIAN);
+        long address = base;
+        long end = base + length;
+
+        while ((address & 7) != 0 && address != end) {
+            out.put((byte) read(address++, 1));
+        }
+        while (end - address >= 8) {
+            out.putLong(backend.readWord(address));
+            address += 8;
+        }
+        while (address != end) {
+            out.put((byte) read(address++, 1));
+        }
+        dst.position(dst.limit());
+    }
+
+    /**
+     * Writes {@code length} bytes of memory starting at {@code base} to a channel, e.g. a file.
+     * The range is checked once and the bytes are staged through a reusable 64 KB buffer.
+     * @param base The first byte address.
+     * @param length The number of bytes.
+     * @param dst The destination channel.
+     * @throws MemoryAccessException if the range falls outside memory.
+     * @throws IOException if the channel cannot be written.
+     */
+    public void dump(long base, long length, WritableByteChannel dst) throws IOException {
+        if (length < 0) {
+            throw new IllegalArgumentException("Negative dump length: " + length);
+        }
+        if (length == 0) return;
+        checkRange(base, length);
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(length, DUMP_BUFFER_SIZE));
+        for (long offset = 0; offset < length; ) {
+            int chunk = (int) Math.min(length - offset, buffer.capacity());
+            buffer.clear().limit(chunk);
+            read(base + offset, buffer);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                dst.write(buffer);
+            }
+            offset += chunk;
         }
     }
 
+    // --- Write Tracking ---
+
+    /**
+     * Visits every word written since the last reset, in address order (including words written back to 0).
+     * @param visitor Receives the byte address and current value of each word.
+     */
+    public void forEachTouchedWord(WordVisitor visitor) {
+        backend.forEachTouchedWord(visitor);
+    }
+
+    /**
+     * Visits every word changed since the previous call, in no particular order, and clears the dirty set.
+     * Intended for a single consumer that mirrors memory incrementally (e.g. a GUI view).
+     * @param visitor Receives the byte address and current value of each changed word.
+     */
+    public void drainDirtyWords(WordVisitor visitor) {
+        backend.drainDirtyWords(visitor);
+    }
+
+    /**
+     * @return The number of words written since the last reset.
+     */
+    public int getTouchedWordCount() {
+        return backend.getTouchedWordCount();
+    }
+
     /**
      * Kiểm tra và xác thực địa chỉ bộ nhớ.
      * @param address Địa chỉ 64-bit
@@ -75,33 +337,38 @@ public class Memory {
      * @throws MemoryAccessException Nếu địa chỉ không hợp lệ
      */
     private void validateAddress(long address, int size) {
-        if (address < 0 || address + size > Constants.MEMORY_SIZE) {
+        if (!backend.isValid(address, size)) {
             throw new MemoryAccessException("Dia chi bo nho khong hop le: 0x" + Long.toHexString(address));
         }
-        if (address % size != 0) {
-            throw new MemoryAccessException("Dia chi phai can chinh theo " + size + " byte: 0x" + Long.toHexString(address));
+    }
+
+    /**
+     * @param size Kích thước truy cập (1, 2, 4, hoặc 8 byte)
+     * @return A mask of the low {@code size} bytes.
+     * @throws MemoryAccessException Nếu kích thước không được hỗ trợ
+     */
+    private static long sizeMask(int size) {
+        if (size != 1 && size != 2 && size != 4 && size != 8) {
+            throw new MemoryAccessException("Kich thuoc khong duoc ho tro: " + size + " bytes");
         }
+        return -1L >>> (64 - (size << 3));
     }
     
     /**
-     * Scans the memory and returns a map of all non-zero 64-bit long values.
+     * Returns a map of all non-zero 64-bit long values.
      * This is useful for displaying the memory state in the GUI without showing
-     * millions of empty addresses.
+     * millions of empty addresses. Only words written since the last reset are visited,
+     * so the cost depends on how much memory the program touched, not on the memory size.
      *
      * @return A Map where the key is the address and the value is the 64-bit data at that address.
      */
     public Map<Long, Long> getAllData() {
-        Map<Long, Long> dataMap = new HashMap<>();
-        // Iterate through memory in 8-byte chunks (the size of a long)
-        for (long address = 0; address < memory.length; address += 8) {
-            // Use the existing readLong method, but handle potential unaligned access at the end
-            if (address + 8 <= memory.length) {
-                long value = read(address, 8);
-                if (value != 0) {
-                    dataMap.put(address, value);
-                }
+        Map<Long, Long> dataMap = new HashMap<>(Math.max(16, getTouchedWordCount() * 2));
+        forEachTouchedWord((address, value) -> {
+            if (value != 0) {
+                dataMap.put(address, value);
             }
-        }
+        });
         return dataMap;
     }
 
@@ -112,27 +379,23 @@ public class Memory {
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
-        boolean first = true;
-        for (int i = 0; i < memory.length; i++) {
-            long value = memory[i];
+        forEachTouchedWord((address, value) -> {
             if (value != 0L) {
-                if (!first) {
+                if (sb.length() > 0) {
                     sb.append(", ");
                 }
-                long address = (long) i * 8;
                 sb.append(String.format("0x%016X: 0x%016X", address, value));
-                first = false;
             }
-        }
+        });
         return sb.length() > 0 ? sb.toString() : "Bo nho rong";
     }
 
     /**
      * Lấy kích thước bộ nhớ (tính bằng byte).
-     * @return Kích thước bộ nhớ
+     * @return Kích thước bộ nhớ, or -1 if memory spans the full 64-bit address space
      */
     public long getSize() {
-        return (long) memory.length * 8;
+        return backend.getSize();
     }
 
     /**
@@ -141,8 +404,6 @@ public class Memory {
      * @return true nếu trống, false nếu đã sử dụng
      */
     public boolean isEmpty(long address) {
-        validateAddress(address, 8);
-        int index = (int) (address / 8);
-        return memory[index] == 0L;
+        return read(address, 8) == 0L;
     }
 }
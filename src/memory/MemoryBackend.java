@@ -0,0 +1,78 @@
+package memory;
+
+/**
+ * Storage behind {@link Memory}. A backend stores aligned 64-bit words and tracks which words were written;
+ * {@link Memory} builds the 1/2/4/8-byte accessors and address validation on top of it.
+ */
+public interface MemoryBackend {
+
+    /**
+     * Reads the 64-bit word at an 8-byte aligned address. Words never written read as 0.
+     * @param address The aligned byte address.
+     * @return The word value.
+     */
+    long readWord(long address);
+
+    /**
+     * Writes the 64-bit word at an 8-byte aligned address and marks it touched and dirty.
+     * @param address The aligned byte address.
+     * @param value The word value.
+     */
+    void writeWord(long address, long value);
+
+    /**
+     * @param address The first byte address of an access.
+     * @param size The access size in bytes.
+     * @return True if every byte of the access lies inside the backend's address range.
+     */
+    boolean isValid(long address, long size);
+
+    /**
+     * @return A human-readable description of the valid address range, for error messages.
+     */
+    String describeRange();
+
+    /**
+     * @return The number of addressable bytes, or -1 if the backend spans the full 64-bit address space.
+     */
+    long getSize();
+
+    /**
+     * Sets every word back to its initial contents: 0, or a file's contents for a backend that reloads an image.
+     * Words that were touched are reported as dirty by the next drain.
+     */
+    void reset();
+
+    /**
+     * Visits every word written since the last reset, in ascending (unsigned) address order.
+     * @param visitor Receives the byte address and current value of each word.
+     */
+    void forEachTouchedWord(Memory.WordVisitor visitor);
+
+    /**
+     * Visits every word changed since the previous drain, in no particular order, then clears the dirty set.
+     * The cost should follow the number of changed words, not the memory size, since this runs on every recorded step.
+     * @param visitor Receives the byte address and current value of each word.
+     */
+    void drainDirtyWords(Memory.WordVisitor visitor);
+
+    /**
+     * @return The number of words written since the last reset.
+     */
+    int getTouchedWordCount();
+
+    /**
+     * @return True if the backend starts with every word 0, so its contents are exactly the words written to it.
+     *         False for a backend that starts from a file's contents.
+     */
+    default boolean startsZeroed() {
+        return true;
+    }
+
+    /**
+     * Creates an independent copy of this backend: same contents, write tracking and address range.
+     * Later writes to either side are not visible to the other.
+     * @return The copy.
+     */
+    MemoryBackend fork();
+}
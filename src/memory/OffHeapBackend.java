@@ -0,0 +1,248 @@
+package memory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * OffHeapBackend stores memory outside the Java heap in little-endian direct {@link ByteBuffer}s,
+ * so very large data memories add nothing to heap size or GC work. The address range 0 to size-1
+ * is split into 1 GB chunks, since a single buffer is limited to 2 GB.
+ * Only write tracking lives on the heap: one bit per 64-bit word, allocated per 4 KB page on first write.
+ * Sizes beyond the JVM's default direct-memory limit need {@code -XX:MaxDirectMemorySize}.
+ */
+public class OffHeapBackend implements MemoryBackend {
+    protected static final int CHUNK_SHIFT = 30; // 1 GB per buffer
+    protected static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+    private static final int PAGE_SHIFT = 12;                // 4 KB tracking pages
+    private static final int BITMAP_LONGS = (1 << PAGE_SHIFT) / 8 / 64; // 8
+
+    private final long size;
+    protected final ByteBuffer[] chunks;
+
+    // Write tracking per 4 KB page, null until the page is first written:
+    // [0, BITMAP_LONGS) = words written since the last reset, [BITMAP_LONGS, 2*BITMAP_LONGS) = dirty words,
+    // [2*BITMAP_LONGS] = 1 while the page is in dirtyPages
+    private static final int LISTED = 2 * BITMAP_LONGS;
+    private final long[][] pageBitmaps;
+    private int touchedWordCount;
+
+    // Pages with a bitmap, and pages with dirty words, so tracking scans do not walk the whole bitmap table
+    private int[] trackedPages = new int[16];
+    private int trackedPageCount;
+    private boolean trackedPagesSorted = true;
+    private int[] dirtyPages = new int[16];
+    private int dirtyPageCount;
+
+    /**
+     * Constructor for OffHeapBackend. The memory is allocated up front and zero-filled.
+     * @param sizeInBytes The memory size in bytes; must be a positive multiple of 8.
+     */
+    public OffHeapBackend(long sizeInBytes) {
+        this(sizeInBytes, allocateChunks(sizeInBytes));
+    }
+
+    /**
+     * Constructor for subclasses that supply their own buffers, e.g. mapped files.
+     * @param sizeInBytes The memory size in bytes, already checked with {@link #checkSize(long)}.
+     * @param chunks Little-endian buffers of {@link #chunkSize(long, int)} bytes each.
+     */
+    protected OffHeapBackend(long sizeInBytes, ByteBuffer[] chunks) {
+        this.size = sizeInBytes;
+        this.chunks = chunks;
+        this.pageBitmaps = new long[(int) ((sizeInBytes + (1 << PAGE_SHIFT) - 1) >>> PAGE_SHIFT)][];
+    }
+
+    private static ByteBuffer[] allocateChunks(long sizeInBytes) {
+        ByteBuffer[] chunks = new ByteBuffer[checkSize(sizeInBytes)];
+        for (int i = 0; i < chunks.length; i++) {
+            chunks[i] = ByteBuffer.allocateDirect((int) chunkSize(sizeInBytes, i)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        return chunks;
+    }
+
+    /**
+     * @param sizeInBytes The requested memory size.
+     * @return The number of chunks needed.
+     * @throws IllegalArgumentException if the size is not a positive multiple of 8 or is too large.
+     */
+    protected static int checkSize(long sizeInBytes) {
+        if (sizeInBytes <= 0 || sizeInBytes % 8 != 0 || (sizeInBytes >>> PAGE_SHIFT) >= Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid off-heap memory size: " + sizeInBytes);
+        }
+        return (int) ((sizeInBytes + CHUNK_MASK) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * @return The size in bytes of chunk {@code index} for a memory of the given size.
+     */
+    protected static long chunkSize(long sizeInBytes, int index) {
+        return Math.min(1L << CHUNK_SHIFT, sizeInBytes - ((long) index << CHUNK_SHIFT));
+    }
+
+    @Override
+    public long readWord(long address) {
+        return chunks[(int) (address >>> CHUNK_SHIFT)].getLong((int) (address & CHUNK_MASK));
+    }
+
+    @Override
+    public void writeWord(long address, long value) {
+        chunks[(int) (address >>> CHUNK_SHIFT)].putLong((int) (address & CHUNK_MASK), value);
+        markTouched(address, true);
+    }
+
+    /**
+     * Marks a word as touched without changing it.
+     * @param address The aligned byte address.
+     * @param dirty Whether the word is also reported by the next drain.
+     */
+    protected final void markTouched(long address, boolean dirty) {
+        int page = (int) (address >>> PAGE_SHIFT);
+        long[] bitmap = pageBitmaps[page];
+        if (bitmap == null) {
+            bitmap = pageBitmaps[page] = new long[2 * BITMAP_LONGS + 1];
+            if (trackedPageCount == trackedPages.length) {
+                trackedPages = Arrays.copyOf(trackedPages, trackedPageCount * 2);
+            }
+            if (trackedPageCount > 0 && trackedPages[trackedPageCount - 1] > page) {
+                trackedPagesSorted = false;
+            }
+            trackedPages[trackedPageCount++] = page;
+        }
+        int word = (int) (address >>> 3) & (BITMAP_LONGS * 64 - 1);
+        long bit = 1L << word;
+        int block = word >>> 6;
+        if ((bitmap[block] & bit) == 0) {
+            bitmap[block] |= bit;
+            touchedWordCount++;
+        }
+        if (dirty) {
+            bitmap[BITMAP_LONGS + block] |= bit;
+            listDirty(page, bitmap);
+        }
+    }
+
+    /**
+     * Adds a page to the dirty list unless it is already there.
+     */
+    private void listDirty(int page, long[] bitmap) {
+        if (bitmap[LISTED] != 0) {
+            return;
+        }
+        if (dirtyPageCount == dirtyPages.length) {
+            dirtyPages = Arrays.copyOf(dirtyPages, dirtyPageCount * 2);
+        }
+        dirtyPages[dirtyPageCount++] = page;
+        bitmap[LISTED] = 1;
+    }
+
+    @Override
+    public boolean isValid(long address, long size) {
+        return address >= 0 && address <= this.size - size;
+    }
+
+    @Override
+    public String describeRange() {
+        return "0x0 to 0x" + Long.toHexString(size - 1);
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void reset() {
+        untrackTouchedWords(true);
+    }
+
+    /**
+     * Clears the touched set, marking its words dirty.
+     * @param zeroWords Whether the touched words are also set to 0.
+     */
+    protected final void untrackTouchedWords(boolean zeroWords) {
+        for (int i = 0; i < trackedPageCount; i++) {
+            int page = trackedPages[i];
+            long[] bitmap = pageBitmaps[page];
+            boolean touched = false;
+            for (int block = 0; block < BITMAP_LONGS; block++) {
+                touched |= bitmap[block] != 0;
+                long bits = bitmap[block];
+                while (zeroWords && bits != 0) {
+                    long address = wordAddress(page, block, Long.numberOfTrailingZeros(bits));
+                    chunks[(int) (address >>> CHUNK_SHIFT)].putLong((int) (address & CHUNK_MASK), 0L);
+                    bits &= bits - 1;
+                }
+                bitmap[BITMAP_LONGS + block] |= bitmap[block];
+                bitmap[block] = 0L;
+            }
+            if (touched) {
+                listDirty(page, bitmap);
+            }
+        }
+        touchedWordCount = 0;
+    }
+
+    @Override
+    public void forEachTouchedWord(Memory.WordVisitor visitor) {
+        if (!trackedPagesSorted) {
+            Arrays.sort(trackedPages, 0, trackedPageCount);
+            trackedPagesSorted = true;
+        }
+        for (int i = 0; i < trackedPageCount; i++) {
+            visitSetBits(trackedPages[i], 0, visitor);
+        }
+    }
+
+    @Override
+    public void drainDirtyWords(Memory.WordVisitor visitor) {
+        for (int i = 0; i < dirtyPageCount; i++) {
+            int page = dirtyPages[i];
+            visitSetBits(page, BITMAP_LONGS, visitor);
+            Arrays.fill(pageBitmaps[page], BITMAP_LONGS, 2 * BITMAP_LONGS + 1, 0L);
+        }
+        dirtyPageCount = 0;
+    }
+
+    @Override
+    public int getTouchedWordCount() {
+        return touchedWordCount;
+    }
+
+    /**
+     * Allocates a new off-heap memory of the same size and copies the touched words into it.
+     * Use {@link PagedBackend} when forks must share memory.
+     */
+    @Override
+    public OffHeapBackend fork() {
+        OffHeapBackend copy = new OffHeapBackend(size);
+        forEachTouchedWord(copy::writeWord);
+        for (int page = 0; page < pageBitmaps.length; page++) {
+            if (pageBitmaps[page] != null) {
+                copy.pageBitmaps[page] = pageBitmaps[page].clone();
+            }
+        }
+        copy.trackedPages = Arrays.copyOf(trackedPages, trackedPages.length);
+        copy.trackedPageCount = trackedPageCount;
+        copy.trackedPagesSorted = trackedPagesSorted;
+        copy.dirtyPages = Arrays.copyOf(dirtyPages, dirtyPages.length);
+        copy.dirtyPageCount = dirtyPageCount;
+        return copy;
+    }
+
+    private void visitSetBits(int page, int offset, Memory.WordVisitor visitor) {
+        long[] bitmap = pageBitmaps[page];
+        for (int block = 0; block < BITMAP_LONGS; block++) {
+            long bits = bitmap[offset + block];
+            while (bits != 0) {
+                long address = wordAddress(page, block, Long.numberOfTrailingZeros(bits));
+                visitor.visit(address, readWord(address));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    private static long wordAddress(int page, int block, int bit) {
+        return ((long) page << PAGE_SHIFT) + ((long) ((block << 6) + bit) << 3);
+    }
+}
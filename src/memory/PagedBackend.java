@@ -0,0 +1,311 @@
+package memory;
+
+import java.util.Arrays;
+
+/**
+ * PagedBackend is a sparse memory covering the full 64-bit address space.
+ * Memory is split into 4 KB pages that are allocated on first write and found through an
+ * open-addressing page table keyed by page number. Reads of unallocated pages return 0 without
+ * allocating, and the most recently used page is cached so sequential accesses skip the table.
+ * Footprint is proportional to the number of pages the program has written.
+ * <p>
+ * Pages are copy-on-write: {@link #fork()} shares every page between the original and the copy,
+ * and whichever side first modifies a shared page gets a private copy of it. Forking therefore
+ * costs one page-table copy, and afterwards each side pays only for the pages it writes.
+ */
+public class PagedBackend implements MemoryBackend {
+    public static final int PAGE_SHIFT = 12;
+    public static final int PAGE_SIZE = 1 << PAGE_SHIFT;        // 4 KB
+    private static final int WORDS_PER_PAGE = PAGE_SIZE / 8;    // 512
+    private static final int BITMAP_LONGS = WORDS_PER_PAGE / 64; // 8
+
+    /**
+     * One 4 KB page with its own write-tracking bitmaps. A page may only be modified by the backend
+     * whose owner token it carries; any other backend sharing it must copy it first.
+     */
+    private static final class Page {
+        final long pageNumber;
+        final Object owner;
+        final long[] words;
+        final long[] touched;
+        final long[] dirty;
+        boolean inDirtyList; // Listed in the owning backend's dirtyPages
+
+        Page(long pageNumber, Object owner) {
+            this.pageNumber = pageNumber;
+            this.owner = owner;
+            this.words = new long[WORDS_PER_PAGE];
+            this.touched = new long[BITMAP_LONGS];
+            this.dirty = new long[BITMAP_LONGS];
+        }
+
+        Page(Page source, Object owner) {
+            this.pageNumber = source.pageNumber;
+            this.owner = owner;
+            this.words = source.words.clone();
+            this.touched = source.touched.clone();
+            this.dirty = source.dirty.clone();
+            this.inDirtyList = source.inDirtyList;
+        }
+    }
+
+    // Page table (open addressing, linear probing); a null slot is empty
+    private Page[] table = new Page[64];
+    private int pageCount;
+
+    // Last-page cache
+    private Page lastPage;
+
+    // Pages carrying this token belong to this backend alone; replaced on every fork
+    private Object owner = new Object();
+
+    private int touchedWordCount;
+
+    // Numbers of the pages with dirty words, so a drain visits only those
+    private long[] dirtyPages = new long[16];
+    private int dirtyPageCount;
+
+    @Override
+    public long readWord(long address) {
+        Page page = findPage(address >>> PAGE_SHIFT);
+        return page == null ? 0L : page.words[wordIndex(address)];
+    }
+
+    @Override
+    public void writeWord(long address, long value) {
+        long pageNumber = address >>> PAGE_SHIFT;
+        Page page = findPage(pageNumber);
+        if (page == null) {
+            page = allocatePage(pageNumber);
+        } else if (page.owner != owner) {
+            page = copyPage(slotOf(pageNumber));
+        }
+
+        int index = wordIndex(address);
+        page.words[index] = value;
+
+        long bit = 1L << index;
+        int block = index >>> 6;
+        if ((page.touched[block] & bit) == 0) {
+            page.touched[block] |= bit;
+            touchedWordCount++;
+        }
+        page.dirty[block] |= bit;
+        if (!page.inDirtyList) {
+            listDirty(page);
+        }
+    }
+
+    @Override
+    public boolean isValid(long address, long size) {
+        // Every 64-bit address is backed, but an access must not wrap past 0xFFFFFFFFFFFFFFFF to address 0
+        return size <= 0 || Long.compareUnsigned(address, -size) <= 0;
+    }
+
+    @Override
+    public String describeRange() {
+        return "0x0 to 0xFFFFFFFFFFFFFFFF";
+    }
+
+    @Override
+    public long getSize() {
+        return -1L;
+    }
+
+    /**
+     * Zeroes every touched word. Pages stay allocated so a reloaded program does not fault them in again.
+     */
+    @Override
+    public void reset() {
+        for (int slot = 0; slot < table.length; slot++) {
+            Page page = table[slot];
+            if (page == null || isClear(page.touched)) continue;
+            if (page.owner != owner) {
+                page = copyPage(slot);
+            }
+            for (int block = 0; block < BITMAP_LONGS; block++) {
+                long bits = page.touched[block];
+                while (bits != 0) {
+                    page.words[(block << 6) + Long.numberOfTrailingZeros(bits)] = 0L;
+                    bits &= bits - 1;
+                }
+                page.dirty[block] |= page.touched[block];
+                page.touched[block] = 0L;
+            }
+            if (!page.inDirtyList) {
+                listDirty(page);
+            }
+        }
+        touchedWordCount = 0;
+    }
+
+    @Override
+    public void forEachTouchedWord(Memory.WordVisitor visitor) {
+        for (Page page : pagesInAddressOrder()) {
+            visitSetBits(page, page.touched, visitor);
+        }
+    }
+
+    @Override
+    public void drainDirtyWords(Memory.WordVisitor visitor) {
+        for (int i = 0; i < dirtyPageCount; i++) {
+            long pageNumber = dirtyPages[i];
+            Page page = findPage(pageNumber);
+            visitSetBits(page, page.dirty, visitor);
+            if (page.owner != owner) {
+                page = copyPage(slotOf(pageNumber));
+            }
+            Arrays.fill(page.dirty, 0L);
+            page.inDirtyList = false;
+        }
+        dirtyPageCount = 0;
+    }
+
+    /**
+     * Creates a copy that shares every page with this backend. Neither side sees the other's later writes;
+     * a shared page is copied by whichever side modifies it first.
+     */
+    @Override
+    public PagedBackend fork() {
+        PagedBackend copy = new PagedBackend();
+        copy.table = table.clone();
+        copy.pageCount = pageCount;
+        copy.touchedWordCount = touchedWordCount;
+        copy.dirtyPages = Arrays.copyOf(dirtyPages, dirtyPages.length);
+        copy.dirtyPageCount = dirtyPageCount;
+        owner = new Object(); // Pages are now shared, so this side must copy before writing too
+        lastPage = null;
+        return copy;
+    }
+
+    @Override
+    public int getTouchedWordCount() {
+        return touchedWordCount;
+    }
+
+    /**
+     * @return The number of 4 KB pages currently allocated.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    // --- Page Table ---
+
+    private Page findPage(long pageNumber) {
+        Page page = lastPage;
+        if (page != null && page.pageNumber == pageNumber) {
+            return page;
+        }
+        int mask = table.length - 1;
+        for (int slot = hash(pageNumber) & mask; (page = table[slot]) != null; slot = (slot + 1) & mask) {
+            if (page.pageNumber == pageNumber) {
+                lastPage = page;
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private Page allocatePage(long pageNumber) {
+        if ((pageCount + 1) * 2 > table.length) {
+            resize(table.length * 2);
+        }
+        Page page = new Page(pageNumber, owner);
+        insert(table, page);
+        pageCount++;
+        lastPage = page;
+        return page;
+    }
+
+    /**
+     * Replaces the shared page in a table slot with a private copy owned by this backend.
+     */
+    private Page copyPage(int slot) {
+        Page page = new Page(table[slot], owner);
+        table[slot] = page;
+        lastPage = page;
+        return page;
+    }
+
+    /**
+     * Adds a page whose dirty bitmap just became non-empty to the dirty list.
+     */
+    private void listDirty(Page page) {
+        if (dirtyPageCount == dirtyPages.length) {
+            dirtyPages = Arrays.copyOf(dirtyPages, dirtyPageCount * 2);
+        }
+        dirtyPages[dirtyPageCount++] = page.pageNumber;
+        page.inDirtyList = true;
+    }
+
+    private int slotOf(long pageNumber) {
+        int mask = table.length - 1;
+        int slot = hash(pageNumber) & mask;
+        while (table[slot].pageNumber != pageNumber) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        Page[] resized = new Page[capacity];
+        for (Page page : table) {
+            if (page != null) {
+                insert(resized, page);
+            }
+        }
+        table = resized;
+    }
+
+    private static void insert(Page[] target, Page page) {
+        int mask = target.length - 1;
+        int slot = hash(page.pageNumber) & mask;
+        while (target[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        target[slot] = page;
+    }
+
+    private static int hash(long pageNumber) {
+        long h = pageNumber * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // --- Helpers ---
+
+    private static int wordIndex(long address) {
+        return (int) ((address >>> 3) & (WORDS_PER_PAGE - 1));
+    }
+
+    private Page[] pagesInAddressOrder() {
+        Page[] pages = new Page[pageCount];
+        int count = 0;
+        for (Page page : table) {
+            if (page != null) {
+                pages[count++] = page;
+            }
+        }
+        Arrays.sort(pages, (a, b) -> Long.compareUnsigned(a.pageNumber, b.pageNumber));
+        return pages;
+    }
+
+    private static boolean isClear(long[] bitmap) {
+        for (long bits : bitmap) {
+            if (bits != 0) return false;
+        }
+        return true;
+    }
+
+    private static void visitSetBits(Page page, long[] bitmap, Memory.WordVisitor visitor) {
+        long pageBase = page.pageNumber << PAGE_SHIFT;
+        for (int block = 0; block < BITMAP_LONGS; block++) {
+            long bits = bitmap[block];
+            while (bits != 0) {
+                int index = (block << 6) + Long.numberOfTrailingZeros(bits);
+                visitor.visit(pageBase + ((long) index << 3), page.words[index]);
+                bits &= bits - 1;
+            }
+        }
+    }
+}
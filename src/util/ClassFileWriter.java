@@ -0,0 +1,278 @@
+package util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal JVM class-file writer used to generate code at runtime without external libraries.
+ * It supports a constant pool (UTF-8, class, integer, long, field and method references) and
+ * methods with straight-line bytecode. Classes are written as version 52 (Java 8) without
+ * StackMapTable attributes, so generated methods must not contain branches or exception handlers.
+ */
+public final class ClassFileWriter {
+    // --- Access flags ---
+    public static final int ACC_PUBLIC = 0x0001;
+    public static final int ACC_FINAL = 0x0010;
+    public static final int ACC_SUPER = 0x0020;
+
+    // --- Opcodes used by the simulator's code generators ---
+    public static final int LCONST_0 = 0x09;
+    public static final int LCONST_1 = 0x0A;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC_W = 0x13;
+    public static final int LDC2_W = 0x14;
+    public static final int LLOAD = 0x16;
+    public static final int ALOAD = 0x19;
+    public static final int LALOAD = 0x2F;
+    public static final int AALOAD = 0x32;
+    public static final int LSTORE = 0x37;
+    public static final int LASTORE = 0x50;
+    public static final int POP = 0x57;
+    public static final int POP2 = 0x58;
+    public static final int LADD = 0x61;
+    public static final int LSUB = 0x65;
+    public static final int LMUL = 0x69;
+    public static final int LSHL = 0x79;
+    public static final int LSHR = 0x7B;
+    public static final int LUSHR = 0x7D;
+    public static final int LAND = 0x7F;
+    public static final int LOR = 0x81;
+    public static final int LXOR = 0x83;
+    public static final int IRETURN = 0xAC;
+    public static final int RETURN = 0xB1;
+    public static final int PUTFIELD = 0xB5;
+    public static final int INVOKEVIRTUAL = 0xB6;
+    public static final int INVOKESPECIAL = 0xB7;
+    public static final int INVOKESTATIC = 0xB8;
+
+    private static final int MAJOR_VERSION = 52;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_FIELDREF = 9;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream poolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream pool = new DataOutputStream(poolBytes);
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1; // Index 0 is unused
+
+    private final int accessFlags;
+    private final int thisClass;
+    private final int superClass;
+    private final List<MethodWriter> methods = new ArrayList<>();
+
+    /**
+     * Constructor for ClassFileWriter.
+     * @param accessFlags Class access flags, e.g. {@code ACC_FINAL | ACC_SUPER}.
+     * @param internalName The class name in internal form, e.g. {@code "core/Generated"}.
+     * @param superName The superclass in internal form.
+     */
+    public ClassFileWriter(int accessFlags, String internalName, String superName) {
+        this.accessFlags = accessFlags;
+        this.thisClass = classRef(internalName);
+        this.superClass = classRef(superName);
+    }
+
+    // --- Constant Pool ---
+
+    public int utf8(String value) {
+        return constant("U" + value, CONSTANT_UTF8, out -> out.writeUTF(value), 1);
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, CONSTANT_CLASS, out -> out.writeShort(name), 1);
+    }
+
+    public int intConstant(int value) {
+        return constant("I" + value, CONSTANT_INTEGER, out -> out.writeInt(value), 1);
+    }
+
+    public int longConstant(long value) {
+        return constant("J" + value, CONSTANT_LONG, out -> out.writeLong(value), 2);
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_FIELDREF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef(CONSTANT_METHODREF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameIndex = utf8(name);
+        int typeIndex = utf8(descriptor);
+        int nameAndType = constant("N" + name + ":" + descriptor, CONSTANT_NAME_AND_TYPE, out -> {
+            out.writeShort(nameIndex);
+            out.writeShort(typeIndex);
+        }, 1);
+        return constant(tag + owner + "." + name + ":" + descriptor, tag, out -> {
+            out.writeShort(ownerIndex);
+            out.writeShort(nameAndType);
+        }, 1);
+    }
+
+    private interface EntryBody {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private int constant(String key, int tag, EntryBody body, int slots) {
+        Integer existing = poolIndex.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            pool.writeByte(tag);
+            body.write(pool);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // Cannot happen for an in-memory stream
+        }
+        int index = poolCount;
+        poolCount += slots;
+        poolIndex.put(key, index);
+        return index;
+    }
+
+    // --- Methods ---
+
+    /**
+     * Starts a method. Its code is written through the returned writer.
+     * @param accessFlags Method access flags.
+     * @param name The method name.
+     * @param descriptor The method descriptor, e.g. {@code "([J)I"}.
+     * @param maxStack The maximum operand stack depth, in slots.
+     * @param maxLocals The number of local variable slots, including {@code this} and the parameters.
+     * @return The code writer for the method.
+     */
+    public MethodWriter addMethod(int accessFlags, String name, String descriptor, int maxStack, int maxLocals) {
+        MethodWriter method = new MethodWriter(accessFlags, utf8(name), utf8(descriptor), maxStack, maxLocals);
+        methods.add(method);
+        return method;
+    }
+
+    /**
+     * Writes the bytecode of one method.
+     */
+    public final class MethodWriter {
+        private final int accessFlags;
+        private final int nameIndex;
+        private final int descriptorIndex;
+        private final int maxStack;
+        private final int maxLocals;
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+
+        private MethodWriter(int accessFlags, int nameIndex, int descriptorIndex, int maxStack, int maxLocals) {
+            this.accessFlags = accessFlags;
+            this.nameIndex = nameIndex;
+            this.descriptorIndex = descriptorIndex;
+            this.maxStack = maxStack;
+            this.maxLocals = maxLocals;
+        }
+
+        /** Emits an instruction without operands. */
+        public MethodWriter op(int opcode) {
+            code.write(opcode);
+            return this;
+        }
+
+        /** Emits an instruction with an unsigned 16-bit operand, e.g. a constant-pool index. */
+        public MethodWriter op(int opcode, int u2) {
+            code.write(opcode);
+            code.write(u2 >>> 8);
+            code.write(u2);
+            return this;
+        }
+
+        /** Emits a local variable instruction (xLOAD/xSTORE) for any slot. */
+        public MethodWriter local(int opcode, int slot) {
+            if (slot > 0xFF) {
+                code.write(0xC4); // wide
+                return op(opcode, slot);
+            }
+            code.write(opcode);
+            code.write(slot);
+            return this;
+        }
+
+        /** Pushes an int constant with the shortest encoding. */
+        public MethodWriter pushInt(int value) {
+            if (value >= -1 && value <= 5) {
+                code.write(0x03 + value); // iconst_m1 .. iconst_5
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                op(SIPUSH, value & 0xFFFF);
+            } else {
+                op(LDC_W, intConstant(value));
+            }
+            return this;
+        }
+
+        /** Pushes a long constant with the shortest encoding. */
+        public MethodWriter pushLong(long value) {
+            if (value == 0L || value == 1L) {
+                return op(value == 0L ? LCONST_0 : LCONST_1);
+            }
+            return op(LDC2_W, longConstant(value));
+        }
+
+        private void write(DataOutputStream out) throws IOException {
+            byte[] bytes = code.toByteArray();
+            out.writeShort(accessFlags);
+            out.writeShort(nameIndex);
+            out.writeShort(descriptorIndex);
+            out.writeShort(1); // One attribute: Code
+            out.writeShort(utf8("Code"));
+            out.writeInt(12 + bytes.length);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeShort(0); // Exception table length
+            out.writeShort(0); // Code attributes
+        }
+    }
+
+    /**
+     * @return The complete class file.
+     */
+    public byte[] toByteArray() {
+        utf8("Code"); // Make sure the attribute name is in the pool before it is written
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            out.writeShort(poolCount);
+            out.write(poolBytes.toByteArray());
+            out.writeShort(accessFlags);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // Interfaces
+            out.writeShort(0); // Fields
+            out.writeShort(methods.size());
+            for (MethodWriter method : methods) {
+                method.write(out);
+            }
+            out.writeShort(0); // Class attributes
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
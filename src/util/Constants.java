@@ -13,6 +13,9 @@ public class Constants {
     // Thanh ghi XZR (Zero Register)
     public static final int ZERO_REGISTER = 31;
 
+    // Thanh ghi liên kết (Link Register) mà BL ghi địa chỉ trả về vào
+    public static final int LINK_REGISTER = 30;
+
     // Các giá trị opcode mẫu (tùy thuộc vào cách bạn định nghĩa lệnh)
     public static final int OPCODE_ADD = 0x458; // Opcode cho ADD (hex)
     public static final int OPCODE_SUB = 0x658; // Opcode cho SUB
@@ -23,6 +26,12 @@ public class Constants {
     // Kích thước bộ nhớ (byte, ví dụ)
     public static final int MEMORY_SIZE = 64 * 1024; // 64KB
 
+    // Số chương trình đã biên dịch được giữ trong cache của InstructionFactory
+    public static final int DEFAULT_ASSEMBLY_CACHE_SIZE = 32;
+
+    // Số lần một basic block chạy trên fast path trước khi được JIT sang JVM bytecode (0 = tắt JIT)
+    public static final int DEFAULT_JIT_THRESHOLD = 1000;
+
     // Ngăn khởi tạo class này
     private Constants() {
         throw new AssertionError("Utility class - cannot instantiate");
@@ -0,0 +1,41 @@
+package util;
+
+/**
+ * Helpers for writing JSON output by hand (the simulator has no JSON library).
+ */
+public class JsonUtils {
+
+    /**
+     * Quotes and escapes a string as a JSON string literal.
+     * @param value The string, or null.
+     * @return The literal, e.g. {@code "a\"b"}, or {@code null} for null.
+     */
+    public static String quote(String value) {
+        if (value == null) {
+            return "null";
+        }
+        StringBuilder json = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        return json.append('"').toString();
+    }
+
+    // Ngăn khởi tạo class này
+    private JsonUtils() {
+        throw new AssertionError("Utility class - cannot instantiate");
+    }
+}